@@ -8,6 +8,7 @@ import {
   Platform,
   NativeAppEventEmitter,
 } from 'react-native'
+import getUUID from './utils/uuid'
 
 const RNFetchBlob:RNFetchBlobNative = NativeModules.RNFetchBlob
 
@@ -38,9 +39,251 @@ function addCompleteDownload(config) {
     return Promise.reject('RNFetchBlob.android.addCompleteDownload only supports Android.')
 }
 
+/**
+ * Move a queued request to another priority class.
+ * @param  {string} taskId Task ID of the request.
+ * @param  {'interactive' | 'normal' | 'background'} priority New priority.
+ * @return {Promise<boolean>} False if the request is not waiting in queue.
+ */
+function setPriority(taskId:string, priority:string) {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.setPriority(taskId, priority)
+  else
+    return Promise.reject('RNFetchBlob.android.setPriority only supports Android.')
+}
+
+/**
+ * Change the max number of in-flight requests, in total and for a single host.
+ */
+function setSchedulerLimits(maxRequests:number, maxRequestsPerHost:number) {
+  if(Platform.OS === 'android')
+    return Promise.resolve(RNFetchBlob.setSchedulerLimits(maxRequests, maxRequestsPerHost))
+  else
+    return Promise.reject('RNFetchBlob.android.setSchedulerLimits only supports Android.')
+}
+
+/**
+ * Get state, transferred bytes and timestamps of every task which has not been released.
+ * @return {Promise<Array<any>>}
+ */
+function getActiveTasks() {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.getActiveTasks()
+  else
+    return Promise.reject('RNFetchBlob.android.getActiveTasks only supports Android.')
+}
+
+function getQueueDepth() {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.getQueueDepth()
+  else
+    return Promise.reject('RNFetchBlob.android.getQueueDepth only supports Android.')
+}
+
+/**
+ * Configure the connection pool shared by all requests.
+ * @param  {{maxIdleConnections:number, keepAliveDuration:number}} config Max number of idle
+ *         connections, and time in milliseconds an idle connection is kept alive.
+ */
+function setConnectionPoolConfig(config) {
+  if(Platform.OS === 'android')
+    return Promise.resolve(RNFetchBlob.setConnectionPoolConfig(config))
+  else
+    return Promise.reject('RNFetchBlob.android.setConnectionPoolConfig only supports Android.')
+}
+
+function getConnectionPoolStats() {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.getConnectionPoolStats()
+  else
+    return Promise.reject('RNFetchBlob.android.getConnectionPoolStats only supports Android.')
+}
+
+/**
+ * Open connections to hosts before the first request, e.g. while the splash screen is shown.
+ * @param  {Array<string>} hosts Host names or URLs, `https` is used when scheme is omitted.
+ * @return {Promise<Array<any>>} `host`, `error` and `time` of each connection.
+ */
+function preconnect(hosts:Array<string>) {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.preconnect(hosts)
+  else
+    return Promise.reject('RNFetchBlob.android.preconnect only supports Android.')
+}
+
+/**
+ * Configure the response cache used by `key` option.
+ * @param  {{maxSize:number}} config Max size of cached files in bytes.
+ */
+function setCacheConfig(config) {
+  if(Platform.OS === 'android')
+    return Promise.resolve(RNFetchBlob.setCacheConfig(config))
+  else
+    return Promise.reject('RNFetchBlob.android.setCacheConfig only supports Android.')
+}
+
+function getCacheStats() {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.getCacheStats()
+  else
+    return Promise.reject('RNFetchBlob.android.getCacheStats only supports Android.')
+}
+
+/**
+ * Configure memory of responses which are kept in memory, a response which exceeds
+ * `maxResponseBytes` (or its `memoryThreshold` option), or which doesn't fit in `maxBytes`, is
+ * written to a temp file and resolved as a path. While all `maxBytes` are in use, requests whose
+ * response is kept in memory wait in the queue before they are sent.
+ * @param  {{maxBytes:number, maxResponseBytes:number}} config Sizes in bytes.
+ */
+function setMemoryConfig(config) {
+  if(Platform.OS === 'android')
+    return Promise.resolve(RNFetchBlob.setMemoryConfig(config))
+  else
+    return Promise.reject('RNFetchBlob.android.setMemoryConfig only supports Android.')
+}
+
+function getMemoryStats() {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.getMemoryStats()
+  else
+    return Promise.reject('RNFetchBlob.android.getMemoryStats only supports Android.')
+}
+
+/**
+ * Get metrics of the module, including transferred bytes, task outcomes, latency histograms,
+ * executors, streams, cache and buffer pool.
+ * @param  {boolean} reset If counters and histograms start over after this snapshot.
+ */
+function getMetrics(reset:?boolean) {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.getMetrics(!!reset)
+  else
+    return Promise.reject('RNFetchBlob.android.getMetrics only supports Android.')
+}
+
+/**
+ * Resize an executor. File operations run on `io`, or `cpu` when their data is base64 or ascii
+ * encoded, read streams run on `stream` and HTTP tasks are started on `http`. An operation
+ * which doesn't fit in a full queue fails with an error, HTTP tasks wait in the scheduler
+ * instead.
+ * @param  {'http' | 'io' | 'cpu' | 'stream'} name Name of the executor.
+ * @param  {{threads:number, queueSize:number, priority:number}} config Number of threads,
+ *         capacity of the queue and Android thread priority, from -20 (highest) to 19 (lowest).
+ */
+function setExecutorConfig(name:string, config) {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.setExecutorConfig(name, config)
+  else
+    return Promise.reject('RNFetchBlob.android.setExecutorConfig only supports Android.')
+}
+
+function getExecutorStats() {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.getExecutorStats()
+  else
+    return Promise.reject('RNFetchBlob.android.getExecutorStats only supports Android.')
+}
+
+function clearCache() {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.clearCache()
+  else
+    return Promise.reject('RNFetchBlob.android.clearCache only supports Android.')
+}
+
+/**
+ * Change how many times per second progress of all tasks is reported, default is 30.
+ * @param  {number} fps Number of progress events per second.
+ */
+function setProgressFrameRate(fps:number) {
+  if(Platform.OS === 'android')
+    return Promise.resolve(RNFetchBlob.setProgressFrameRate(fps))
+  else
+    return Promise.reject('RNFetchBlob.android.setProgressFrameRate only supports Android.')
+}
+
+/**
+ * Limit bandwidth of tasks which share bandwidth, background tasks by default. Tasks can opt in
+ * or out with `sharedBandwidth` option.
+ * @param  {number} bytesPerSecond Rate of all shared tasks, 0 removes the limit.
+ */
+function setGlobalBandwidth(bytesPerSecond:number) {
+  if(Platform.OS === 'android')
+    return Promise.resolve(RNFetchBlob.setGlobalBandwidth(bytesPerSecond))
+  else
+    return Promise.reject('RNFetchBlob.android.setGlobalBandwidth only supports Android.')
+}
+
+/**
+ * Change bandwidth limit of a running or queued request.
+ * @param  {string} taskId Task ID of the request.
+ * @param  {any} config `maxBandwidth` in bytes per second, 0 removes the limit, and optional
+ *         `sharedBandwidth` which decides if the request counts toward the global limit.
+ * @return {Promise<boolean>} False if the request does not exist.
+ */
+function setTaskBandwidth(taskId:string, config:any) {
+  if(Platform.OS === 'android')
+    return RNFetchBlob.setTaskBandwidth(taskId, config)
+  else
+    return Promise.reject('RNFetchBlob.android.setTaskBandwidth only supports Android.')
+}
+
+/**
+ * Send many requests with one bridge call, requests are performed with a shared concurrency
+ * limit and their results are resolved together.
+ * @param  {Array<any>} requests Request descriptors, each has `url` and optional `method`,
+ *         `headers`, `body`, `taskId`, and `options` which overrides batch options.
+ * @param  {any} options Options of all requests, `concurrency` is the max number of in-flight
+ *         requests of the batch.
+ * @param  {?Function} onProgress Invoked with (completed, failed, total) at most every 200 ms.
+ * @return {Promise<Array<any>>} Results in the order of requests, each has `status` and
+ *         `timings` of the request, the promise has a `cancel` method which cancels the whole
+ *         batch.
+ */
+function fetchBatch(requests:Array<any>, options:any = {}, onProgress:?Function) {
+  if(Platform.OS !== 'android')
+    return Promise.reject('RNFetchBlob.android.fetchBatch only supports Android.')
+  const batchId = getUUID()
+  const subscription = DeviceEventEmitter.addListener('RNFetchBlobBatchProgress', (e) => {
+    if(e.batchId === batchId && onProgress)
+      onProgress(e.completed, e.failed, e.total)
+  })
+  const promise = new Promise((resolve, reject) => {
+    RNFetchBlob.fetchBlobBatch(batchId, requests, options, (err, results) => {
+      subscription.remove()
+      if(err)
+        reject(new Error(err))
+      else
+        resolve(results)
+    })
+  })
+  promise.cancel = () => RNFetchBlob.cancelRequest(batchId, () => {})
+  return promise
+}
+
 
 export default {
   actionViewIntent,
   getContentIntent,
-  addCompleteDownload
+  addCompleteDownload,
+  setPriority,
+  setSchedulerLimits,
+  getQueueDepth,
+  getActiveTasks,
+  setConnectionPoolConfig,
+  getConnectionPoolStats,
+  preconnect,
+  setCacheConfig,
+  getCacheStats,
+  clearCache,
+  setMemoryConfig,
+  getMemoryStats,
+  getMetrics,
+  setExecutorConfig,
+  getExecutorStats,
+  setProgressFrameRate,
+  setGlobalBandwidth,
+  setTaskBandwidth,
+  fetchBatch
 }
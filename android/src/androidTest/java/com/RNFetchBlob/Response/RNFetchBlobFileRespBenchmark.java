@@ -0,0 +1,151 @@
+package com.RNFetchBlob.Response;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * Measures throughput, allocation and GC count of writing a response body to file with
+ * {@link RNFetchBlobFileResp}, compared with the previous write path which allocated a byte
+ * array for every read. The body is generated in memory so only the write path is measured.
+ * Results are written to logcat with tag `RNFetchBlobBenchmark`, run it on a device or an
+ * emulator from the app which links the library :
+ *
+ *   ./gradlew :react-native-fetch-blob:connectedAndroidTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class RNFetchBlobFileRespBenchmark {
+
+    private static final String TAG = "RNFetchBlobBenchmark";
+    private static final long BODY_SIZE = 50 * 1024 * 1024;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void writeBodyToFile() throws IOException {
+        Context context = InstrumentationRegistry.getTargetContext();
+        ReactApplicationContext ctx = new ReactApplicationContext(context);
+        File dest = new File(context.getCacheDir(), "RNFetchBlobBenchmark.bin");
+        try {
+            // warm up both paths before measuring
+            measure(ctx, dest, false);
+            measure(ctx, dest, true);
+            Log.i(TAG, "before : " + measure(ctx, dest, false));
+            Log.i(TAG, "after  : " + measure(ctx, dest, true));
+        } finally {
+            dest.delete();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String measure(ReactApplicationContext ctx, File dest, boolean pooled) throws IOException {
+        long gcCount = getGcCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = System.nanoTime();
+        for(int i = 0; i < ROUNDS; i++) {
+            if(pooled)
+                new RNFetchBlobFileResp(ctx, "benchmark", createBody(), dest.getPath(), true).drain();
+            else
+                writePerRead(createBody(), dest);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Debug.stopAllocCounting();
+        long allocated = Debug.getThreadAllocSize();
+        String gcs = gcCount < 0 ? "n/a" : String.valueOf(getGcCount() - gcCount);
+        return String.format(Locale.US, "%.1f MB/s, %s GCs, %.1f MB allocated on the download thread (%d x %d MB)",
+                ROUNDS * BODY_SIZE / seconds / 1048576, gcs, allocated / 1048576.0, ROUNDS, BODY_SIZE / 1048576);
+    }
+
+    /**
+     * The write path before the pooled buffer, a byte array is allocated for every read.
+     */
+    private static void writePerRead(ResponseBody body, File dest) throws IOException {
+        FileOutputStream out = new FileOutputStream(dest, false);
+        try {
+            while (true) {
+                byte[] bytes = new byte[8192];
+                int read = body.byteStream().read(bytes, 0, bytes.length);
+                if(read == -1)
+                    break;
+                out.write(bytes, 0, read);
+            }
+        } finally {
+            out.close();
+            body.close();
+        }
+    }
+
+    /**
+     * @return Number of garbage collections so far, -1 when the runtime doesn't report it.
+     */
+    private static long getGcCount() {
+        if(Build.VERSION.SDK_INT < 23)
+            return -1;
+        String count = Debug.getRuntimeStat("art.gc.gc-count");
+        return count == null ? -1 : Long.parseLong(count);
+    }
+
+    private static ResponseBody createBody() {
+        return ResponseBody.create(MediaType.parse("application/octet-stream"), BODY_SIZE, Okio.buffer(new PatternSource(BODY_SIZE)));
+    }
+
+    /**
+     * Response content of given length which is produced without allocation.
+     */
+    private static class PatternSource implements Source {
+
+        private static final byte[] PATTERN = new byte[8192];
+
+        static {
+            for(int i = 0; i < PATTERN.length; i++) {
+                PATTERN[i] = (byte) i;
+            }
+        }
+
+        private long remaining;
+
+        PatternSource(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if(remaining == 0)
+                return -1;
+            int count = (int) Math.min(Math.min(byteCount, remaining), PATTERN.length);
+            sink.write(PATTERN, 0, count);
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+}
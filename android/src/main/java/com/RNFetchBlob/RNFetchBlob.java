@@ -25,9 +25,6 @@ import okhttp3.JavaNetCookieJar;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import static android.app.Activity.RESULT_OK;
 import static com.RNFetchBlob.RNFetchBlobConst.GET_CONTENT_INTENT;
@@ -40,11 +37,8 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
     private final OkHttpClient mClient;
 
     static ReactApplicationContext RCTContext;
-    static LinkedBlockingQueue<Runnable> taskQueue = new LinkedBlockingQueue<>();
-    static ThreadPoolExecutor threadPool = new ThreadPoolExecutor(5, 10, 5000, TimeUnit.MILLISECONDS, taskQueue);
-    static LinkedBlockingQueue<Runnable> fsTaskQueue = new LinkedBlockingQueue<>();
-    static ThreadPoolExecutor fsThreadPool = new ThreadPoolExecutor(2, 10, 5000, TimeUnit.MILLISECONDS, taskQueue);
     static public boolean ActionViewVisible = false;
+
     static HashMap<Integer, Promise> promiseTable = new HashMap<>();
 
     public RNFetchBlob(ReactApplicationContext reactContext) {
@@ -86,12 +80,12 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void createFile(final String path, final String content, final String encode, final Callback callback) {
-        threadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.forEncoding(encode).execute(new Runnable() {
             @Override
             public void run() {
                 RNFetchBlobFS.createFile(path, content, encode, callback);
             }
-        });
+        }, callback);
 
     }
 
@@ -130,12 +124,12 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void createFileASCII(final String path, final ReadableArray dataArray, final Callback callback) {
-        threadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.cpu.execute(new Runnable() {
             @Override
             public void run() {
                 RNFetchBlobFS.createFileASCII(path, dataArray, callback);
             }
-        });
+        }, callback);
 
     }
 
@@ -161,12 +155,12 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void cp(final String path, final String dest, final Callback callback) {
-        threadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.io.execute(new Runnable() {
             @Override
             public void run() {
                 RNFetchBlobFS.cp(path, dest, callback);
             }
-        });
+        }, callback);
 
     }
 
@@ -202,32 +196,32 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void readFile(final String path, final String encoding, final Promise promise) {
-        threadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.forEncoding(encoding).execute(new Runnable() {
             @Override
             public void run() {
                 RNFetchBlobFS.readFile(path, encoding, promise);
             }
-        });
+        }, promise);
     }
 
     @ReactMethod
     public void writeFileArray(final String path, final ReadableArray data, final boolean append, final Promise promise) {
-        threadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.cpu.execute(new Runnable() {
             @Override
             public void run() {
                 RNFetchBlobFS.writeFile(path, data, append, promise);
             }
-        });
+        }, promise);
     }
 
     @ReactMethod
     public void writeFile(final String path, final String encoding, final String data, final boolean append, final Promise promise) {
-        threadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.forEncoding(encoding).execute(new Runnable() {
             @Override
             public void run() {
                 RNFetchBlobFS.writeFile(path, encoding, data, append, promise);
             }
-        });
+        }, promise);
 
     }
 
@@ -244,7 +238,7 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
     @ReactMethod
     public void scanFile(final ReadableArray pairs, final Callback callback) {
         final ReactApplicationContext ctx = this.getReactApplicationContext();
-        threadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.io.execute(new Runnable() {
             @Override
             public void run() {
                 int size = pairs.size();
@@ -262,7 +256,7 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
                 }
                 new RNFetchBlobFS(ctx).scanFile(p, m, callback);
             }
-        });
+        }, callback);
 
     }
 
@@ -273,14 +267,40 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
      * @param bufferSize Stream buffer size, default to 4096 or 4095(base64).
      */
     public void readStream(final String path, final String encoding, final int bufferSize, final int tick, final String streamId) {
-        final ReactApplicationContext ctx = this.getReactApplicationContext();
-        fsThreadPool.execute(new Runnable() {
-            @Override
-            public void run() {
-                RNFetchBlobFS fs = new RNFetchBlobFS(ctx);
-                fs.readStream(path, encoding, bufferSize, tick, streamId);
-            }
-        });
+        // streams are not paced by `tick` any more, use openReadStream for flow control
+        RNFetchBlobReadStream.open(path, encoding, bufferSize, 0, streamId);
+    }
+
+    @ReactMethod
+    /**
+     * Open a read stream with flow control, chunks are emitted only when the stream has credits.
+     * @param path Stream file path
+     * @param encoding Stream encoding, should be one of `base64`, `ascii`, and `utf8`
+     * @param bufferSize Stream buffer size, default to 4096 or 4095(base64).
+     * @param credits Number of chunks which can be emitted before JS grants more.
+     */
+    public void openReadStream(String path, String encoding, int bufferSize, int credits, String streamId) {
+        RNFetchBlobReadStream.open(path, encoding, bufferSize, credits, streamId);
+    }
+
+    @ReactMethod
+    public void grantReadStream(String streamId, int credits) {
+        RNFetchBlobReadStream.grant(streamId, credits);
+    }
+
+    @ReactMethod
+    public void pauseReadStream(String streamId) {
+        RNFetchBlobReadStream.pause(streamId);
+    }
+
+    @ReactMethod
+    public void resumeReadStream(String streamId) {
+        RNFetchBlobReadStream.resume(streamId);
+    }
+
+    @ReactMethod
+    public void closeReadStream(String streamId) {
+        RNFetchBlobReadStream.close(streamId);
     }
 
     @ReactMethod
@@ -300,35 +320,156 @@ public class RNFetchBlob extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void enableProgressReport(String taskId, int interval, int count) {
-        RNFetchBlobProgressConfig config = new RNFetchBlobProgressConfig(true, interval, count, RNFetchBlobProgressConfig.ReportType.Download);
-        RNFetchBlobReq.progressReport.put(taskId, config);
+        RNFetchBlobTaskRegistry.Entry entry = RNFetchBlobTaskRegistry.get(taskId);
+        if(entry != null)
+            entry.progressConfig = new RNFetchBlobProgressConfig(true, interval, count, RNFetchBlobProgressConfig.ReportType.Download);
     }
 
     @ReactMethod
     public void df(final Callback callback) {
-        fsThreadPool.execute(new Runnable() {
+        RNFetchBlobExecutors.io.execute(new Runnable() {
             @Override
             public void run() {
                 RNFetchBlobFS.df(callback);
             }
-        });
+        }, callback);
     }
 
 
     @ReactMethod
     public void enableUploadProgressReport(String taskId, int interval, int count) {
-        RNFetchBlobProgressConfig config = new RNFetchBlobProgressConfig(true, interval, count, RNFetchBlobProgressConfig.ReportType.Upload);
-        RNFetchBlobReq.uploadProgressReport.put(taskId, config);
+        RNFetchBlobTaskRegistry.Entry entry = RNFetchBlobTaskRegistry.get(taskId);
+        if(entry != null)
+            entry.uploadProgressConfig = new RNFetchBlobProgressConfig(true, interval, count, RNFetchBlobProgressConfig.ReportType.Upload);
+    }
+
+    @ReactMethod
+    public void setProgressFrameRate(int fps) {
+        RNFetchBlobProgressAggregator.setFrameRate(fps);
+    }
+
+    @ReactMethod
+    public void setGlobalBandwidth(double bytesPerSecond) {
+        RNFetchBlobBandwidth.setGlobalLimit((long) bytesPerSecond);
+    }
+
+    @ReactMethod
+    public void setTaskBandwidth(String taskId, ReadableMap config, Promise promise) {
+        // the cap is kept when only `sharedBandwidth` is changed
+        long limit = config.hasKey("maxBandwidth") ? Math.max((long) config.getDouble("maxBandwidth"), 0) : -1;
+        Boolean shared = config.hasKey("sharedBandwidth") ? config.getBoolean("sharedBandwidth") : null;
+        promise.resolve(RNFetchBlobBandwidth.setTaskLimit(taskId, limit, shared));
     }
 
     @ReactMethod
     public void fetchBlob(ReadableMap options, String taskId, String method, String url, ReadableMap headers, String body, final Callback callback) {
-        new RNFetchBlobReq(options, taskId, method, url, headers, body, null, mClient, callback).run();
-}
+        RNFetchBlobScheduler.submit(new RNFetchBlobReq(options, taskId, method, url, headers, body, null, mClient, callback));
+    }
 
     @ReactMethod
     public void fetchBlobForm(ReadableMap options, String taskId, String method, String url, ReadableMap headers, ReadableArray body, final Callback callback) {
-        new RNFetchBlobReq(options, taskId, method, url, headers, null, body, mClient, callback).run();
+        RNFetchBlobScheduler.submit(new RNFetchBlobReq(options, taskId, method, url, headers, null, body, mClient, callback));
+    }
+
+    @ReactMethod
+    public void fetchBlobBatch(String batchId, ReadableArray requests, ReadableMap options, final Callback callback) {
+        RNFetchBlobBatch.start(batchId, requests, options, mClient, callback);
+    }
+
+    @ReactMethod
+    public void setPriority(String taskId, String priority, Promise promise) {
+        promise.resolve(RNFetchBlobScheduler.setPriority(taskId, RNFetchBlobScheduler.parsePriority(priority)));
+    }
+
+    @ReactMethod
+    public void setSchedulerLimits(int maxRequests, int maxRequestsPerHost) {
+        RNFetchBlobScheduler.setLimits(maxRequests, maxRequestsPerHost);
+    }
+
+    @ReactMethod
+    public void getActiveTasks(Promise promise) {
+        promise.resolve(RNFetchBlobTaskRegistry.getActiveTasks());
+    }
+
+    @ReactMethod
+    public void getQueueDepth(Promise promise) {
+        promise.resolve(RNFetchBlobScheduler.getQueueDepth());
+    }
+
+    @ReactMethod
+    public void setConnectionPoolConfig(ReadableMap config) {
+        int maxIdle = config.hasKey("maxIdleConnections") ? config.getInt("maxIdleConnections") : 0;
+        long keepAlive = config.hasKey("keepAliveDuration") ? (long) config.getDouble("keepAliveDuration") : 0;
+        RNFetchBlobConnectionPool.configure(maxIdle, keepAlive);
+    }
+
+    @ReactMethod
+    public void getConnectionPoolStats(Promise promise) {
+        promise.resolve(RNFetchBlobConnectionPool.getStats());
+    }
+
+    @ReactMethod
+    public void preconnect(ReadableArray hosts, Promise promise) {
+        RNFetchBlobConnectionPool.preconnect(mClient, hosts, promise);
+    }
+
+    @ReactMethod
+    public void setCacheConfig(ReadableMap config) {
+        if(config.hasKey("maxSize"))
+            RNFetchBlobCache.setMaxSize((long) config.getDouble("maxSize"));
+    }
+
+    @ReactMethod
+    public void getCacheStats(Promise promise) {
+        promise.resolve(RNFetchBlobCache.getStats());
+    }
+
+    @ReactMethod
+    public void setMemoryConfig(ReadableMap config) {
+        long maxBytes = config.hasKey("maxBytes") ? (long) config.getDouble("maxBytes") : 0;
+        long maxResponseBytes = config.hasKey("maxResponseBytes") ? (long) config.getDouble("maxResponseBytes") : 0;
+        RNFetchBlobMemoryBudget.configure(maxBytes, maxResponseBytes);
+    }
+
+    @ReactMethod
+    public void getMemoryStats(Promise promise) {
+        promise.resolve(RNFetchBlobMemoryBudget.getStats());
+    }
+
+    @ReactMethod
+    public void getMetrics(boolean reset, Promise promise) {
+        promise.resolve(RNFetchBlobMetrics.getMetrics(reset));
+    }
+
+    @ReactMethod
+    /**
+     * Resize a thread pool.
+     * @param name Name of the pool, one of `http`, `io`, `cpu` and `stream`.
+     * @param config Number of `threads`, capacity of the queue `queueSize` and Android thread
+     *               `priority`.
+     */
+    public void setExecutorConfig(String name, ReadableMap config, Promise promise) {
+        RNFetchBlobExecutors.Pool pool = RNFetchBlobExecutors.get(name);
+        if(pool == null) {
+            promise.reject("RNFetchBlob.setExecutorConfig", "unknown executor `" + name + "`");
+            return;
+        }
+        int threads = config.hasKey("threads") ? config.getInt("threads") : 0;
+        int queueSize = config.hasKey("queueSize") ? config.getInt("queueSize") : 0;
+        int priority = config.hasKey("priority") ? config.getInt("priority") : pool.getPriority();
+        pool.configure(threads, queueSize, priority);
+        promise.resolve(null);
+    }
+
+    @ReactMethod
+    public void getExecutorStats(Promise promise) {
+        promise.resolve(RNFetchBlobExecutors.getStats());
+    }
+
+    @ReactMethod
+    public void clearCache(Promise promise) {
+        RNFetchBlobCache.clear();
+        promise.resolve(null);
     }
 
     @ReactMethod
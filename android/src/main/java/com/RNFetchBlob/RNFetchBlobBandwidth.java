@@ -0,0 +1,177 @@
+package com.RNFetchBlob;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.Call;
+
+/**
+ * Bandwidth limits of transfers, implemented with token buckets. A task can have its own cap,
+ * and tasks which share bandwidth, background tasks by default, also take tokens from a global
+ * bucket, so large background transfers leave room for interactive requests. Transfer loops
+ * call {@link #consume(String, long)} after moving a chunk, which sleeps when the task is over
+ * its budget. All limits can be changed while tasks are running.
+ */
+public class RNFetchBlobBandwidth {
+
+    // time a bucket may save up tokens for when it's idle
+    private static final long BURST_NANOS = 250000000L;
+    private static final long MIN_BURST = 16 * 1024;
+    // sleep in slices so cancelled tasks stop waiting soon
+    private static final long SLICE_NANOS = 100000000L;
+
+    static class Bucket {
+        private long rate;
+        private double tokens;
+        // tokens generated since the bucket was created, a waiter is done when it reaches the
+        // target of its reservation
+        private double accrued;
+        private long last = System.nanoTime();
+
+        Bucket(long rate) {
+            setRate(rate);
+        }
+
+        synchronized long getRate() {
+            return rate;
+        }
+
+        /**
+         * Change the rate, tokens generated at the previous rate are kept and the debt of a
+         * removed limit is cleared, so waiters pick up the new rate on their next slice.
+         */
+        synchronized void setRate(long rate) {
+            refill(System.nanoTime());
+            this.rate = rate;
+            this.tokens = rate <= 0 ? 0 : Math.min(tokens, getCapacity());
+        }
+
+        /**
+         * Take tokens for transferred bytes, the balance may go below zero and the caller has
+         * to wait until it's paid off.
+         * @param bytes Number of bytes
+         * @return Target of the reservation, pass it to {@link #getWait(double)}.
+         */
+        synchronized double reserve(long bytes) {
+            refill(System.nanoTime());
+            if(rate <= 0)
+                return accrued;
+            tokens -= bytes;
+            return tokens >= 0 ? accrued : accrued - tokens;
+        }
+
+        /**
+         * Get the time left until a reservation is paid off at current rate.
+         * @param target Target returned by {@link #reserve(long)}
+         * @return Nanoseconds to wait, 0 when the bucket is unlimited or the reservation is paid.
+         */
+        synchronized long getWait(double target) {
+            refill(System.nanoTime());
+            if(rate <= 0 || accrued >= target)
+                return 0;
+            return (long) ((target - accrued) * 1e9 / rate);
+        }
+
+        private void refill(long now) {
+            if(rate > 0) {
+                double added = (now - last) * rate / 1e9;
+                accrued += added;
+                tokens = Math.min(tokens + added, getCapacity());
+            }
+            last = now;
+        }
+
+        private double getCapacity() {
+            return Math.max(rate * BURST_NANOS / 1e9, MIN_BURST);
+        }
+    }
+
+    private static final Bucket global = new Bucket(0);
+
+    /**
+     * Change the rate of the global bucket.
+     * @param bytesPerSecond Rate, zero or negative value removes the limit.
+     */
+    static void setGlobalLimit(long bytesPerSecond) {
+        global.setRate(bytesPerSecond);
+    }
+
+    static long getGlobalLimit() {
+        return global.getRate();
+    }
+
+    /**
+     * Change the limits of a running or queued task.
+     * @param taskId Task ID
+     * @param bytesPerSecond Cap of the task, zero removes the cap and -1 keeps current value.
+     * @param shared If the task takes tokens from global bucket, null keeps current value.
+     * @return False if the task does not exist.
+     */
+    static boolean setTaskLimit(String taskId, long bytesPerSecond, Boolean shared) {
+        RNFetchBlobTaskRegistry.Entry entry = RNFetchBlobTaskRegistry.get(taskId);
+        if(entry == null)
+            return false;
+        Bucket bucket = entry.bucket;
+        if(bytesPerSecond >= 0) {
+            if(bucket != null)
+                bucket.setRate(bytesPerSecond);
+            else if(bytesPerSecond > 0)
+                entry.bucket = new Bucket(bytesPerSecond);
+        }
+        if(shared != null)
+            entry.sharedBandwidth = shared;
+        return true;
+    }
+
+    /**
+     * Take tokens for bytes a task has transferred, and wait when the task is over its limits.
+     * @param taskId Task ID
+     * @param bytes Number of bytes which have been transferred
+     * @throws IOException When the task is cancelled or the thread is interrupted while waiting.
+     */
+    public static void consume(String taskId, long bytes) throws IOException {
+        RNFetchBlobTaskRegistry.Entry entry = RNFetchBlobTaskRegistry.get(taskId);
+        if(entry == null)
+            return;
+        Bucket bucket = entry.bucket;
+        double target = bucket != null ? bucket.reserve(bytes) : 0;
+        boolean shared = isShared(entry);
+        double globalTarget = shared ? global.reserve(bytes) : 0;
+        while (true) {
+            // limits may change while waiting, the wait is computed from current rates
+            long wait = bucket != null ? bucket.getWait(target) : 0;
+            if(shared)
+                wait = Math.max(wait, global.getWait(globalTarget));
+            if(wait <= 0)
+                return;
+            if(isStopped(taskId, entry))
+                throw new IOException("Canceled");
+            long slice = Math.min(wait, SLICE_NANOS);
+            try {
+                Thread.sleep(slice / 1000000, (int) (slice % 1000000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for bandwidth");
+            }
+        }
+    }
+
+    /**
+     * Check if a waiting task should stop, segmented downloads have no call in the registry, so
+     * the state of the task is checked as well as its call.
+     */
+    private static boolean isStopped(String taskId, RNFetchBlobTaskRegistry.Entry entry) {
+        if(RNFetchBlobTaskRegistry.get(taskId) != entry || RNFetchBlobTaskRegistry.isCancelled(taskId))
+            return true;
+        Call call = entry.call;
+        return call != null && call.isCanceled();
+    }
+
+    private static boolean isShared(RNFetchBlobTaskRegistry.Entry entry) {
+        Boolean shared = entry.sharedBandwidth;
+        if(shared != null)
+            return shared;
+        return entry.priority == RNFetchBlobScheduler.Priority.Background;
+    }
+
+}
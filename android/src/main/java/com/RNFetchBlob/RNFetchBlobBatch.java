@@ -0,0 +1,225 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * A group of HTTP tasks which is sent by one bridge call. At most `concurrency` tasks of the
+ * batch are in flight at the same time. Tasks of a batch don't emit their own events or invoke
+ * their own callbacks, completion is reported by throttled batch progress events and the
+ * results of all tasks are passed to the batch callback when every task has completed.
+ */
+public class RNFetchBlobBatch {
+
+    private static final int DEFAULT_CONCURRENCY = 4;
+    private static final int REPORT_INTERVAL = 200;
+
+    static HashMap<String, RNFetchBlobBatch> batches = new HashMap<>();
+
+    String batchId;
+    Callback callback;
+    int concurrency = DEFAULT_CONCURRENCY;
+    final LinkedList<RNFetchBlobReq> pending = new LinkedList<>();
+    final ArrayList<RNFetchBlobReq> running = new ArrayList<>();
+    WritableMap[] results;
+    int completed = 0;
+    int failed = 0;
+    long lastReport = 0;
+    boolean canceled = false;
+
+    /**
+     * Create a batch and start its tasks.
+     * @param batchId Batch ID, it can be used to cancel the batch.
+     * @param requests Request descriptors, each contains `url`, and optional `method`, `headers`,
+     *                 `body`, `taskId` and `options` which overrides batch options.
+     * @param options Options of all requests and `concurrency` of the batch.
+     * @param client OkHttpClient provided by React Native.
+     * @param callback Invoked with an array of results when every task has completed.
+     */
+    static void start(String batchId, ReadableArray requests, ReadableMap options, OkHttpClient client, Callback callback) {
+        RNFetchBlobBatch batch = new RNFetchBlobBatch();
+        batch.batchId = batchId;
+        batch.callback = callback;
+        if(options.hasKey("concurrency") && options.getInt("concurrency") > 0)
+            batch.concurrency = options.getInt("concurrency");
+        batch.results = new WritableMap[requests.size()];
+        for(int i = 0; i < requests.size(); i++) {
+            batch.pending.add(batch.createTask(i, requests.getMap(i), options, client));
+        }
+        if(batch.pending.isEmpty()) {
+            callback.invoke(null, Arguments.createArray());
+            return;
+        }
+        synchronized (batches) {
+            batches.put(batchId, batch);
+        }
+        batch.startNext();
+    }
+
+    /**
+     * Cancel a batch, queued tasks are dropped and running tasks are cancelled.
+     * @param batchId Batch ID
+     * @return True if the batch exists.
+     */
+    static boolean cancel(String batchId) {
+        RNFetchBlobBatch batch;
+        synchronized (batches) {
+            batch = batches.get(batchId);
+        }
+        if(batch == null)
+            return false;
+        ArrayList<RNFetchBlobReq> queued;
+        ArrayList<RNFetchBlobReq> inFlight;
+        synchronized (batch) {
+            batch.canceled = true;
+            queued = new ArrayList<>(batch.pending);
+            batch.pending.clear();
+            inFlight = new ArrayList<>(batch.running);
+        }
+        // queued tasks have never been submitted
+        for(RNFetchBlobReq task : queued) {
+            task.callback.invoke("Canceled", null, null);
+        }
+        for(RNFetchBlobReq task : inFlight) {
+            RNFetchBlobReq.cancelTask(task.taskId);
+        }
+        return true;
+    }
+
+    private RNFetchBlobReq createTask(final int index, ReadableMap request, ReadableMap options, OkHttpClient client) {
+        WritableMap taskOptions = Arguments.createMap();
+        taskOptions.merge(options);
+        if(request.hasKey("options") && !request.isNull("options"))
+            taskOptions.merge(request.getMap("options"));
+        String taskId = request.hasKey("taskId") ? request.getString("taskId") : batchId + "-" + index;
+        String method = request.hasKey("method") ? request.getString("method") : "GET";
+        ReadableMap headers = request.hasKey("headers") && !request.isNull("headers") ? request.getMap("headers") : Arguments.createMap();
+        String body = null;
+        ReadableArray arrayBody = null;
+        if(request.hasKey("body") && !request.isNull("body")) {
+            if(request.getType("body") == ReadableType.Array)
+                arrayBody = request.getArray("body");
+            else
+                body = request.getString("body");
+        }
+        final String id = taskId;
+        RNFetchBlobReq task = new RNFetchBlobReq(taskOptions, taskId, method, request.getString("url"), headers, body, arrayBody, client, new Callback() {
+            @Override
+            public void invoke(Object... args) {
+                onComplete(index, id, args);
+            }
+        });
+        task.batch = this;
+        task.batchIndex = index;
+        return task;
+    }
+
+    /**
+     * Submit queued tasks to scheduler until the concurrency limit is reached.
+     */
+    private void startNext() {
+        ArrayList<RNFetchBlobReq> started = new ArrayList<>();
+        synchronized (this) {
+            while (!canceled && running.size() < concurrency && !pending.isEmpty()) {
+                RNFetchBlobReq task = pending.poll();
+                running.add(task);
+                started.add(task);
+            }
+        }
+        for(RNFetchBlobReq task : started) {
+            RNFetchBlobScheduler.submit(task);
+        }
+    }
+
+    /**
+     * Record response status of a task, it's reported with the task's result.
+     * @param task The task
+     * @param info Response information of the task
+     */
+    synchronized void onState(RNFetchBlobReq task, ReadableMap info) {
+        if(info.hasKey("status"))
+            task.batchStatus = info.getInt("status");
+    }
+
+    private void onComplete(int index, String taskId, Object... args) {
+        boolean finished;
+        boolean report;
+        synchronized (this) {
+            if(results[index] != null)
+                return;
+            WritableMap result = Arguments.createMap();
+            result.putString("taskId", taskId);
+            result.putInt("index", index);
+            Object error = args.length > 0 ? args[0] : null;
+            if(error != null) {
+                result.putString("error", String.valueOf(error));
+                failed++;
+            }
+            else {
+                result.putNull("error");
+                result.putString("type", args.length > 1 && args[1] != null ? args[1].toString() : null);
+                result.putString("data", args.length > 2 && args[2] != null ? args[2].toString() : null);
+                // files extracted by `extractTo`
+                if(args.length > 3 && args[3] instanceof WritableArray)
+                    result.putArray("manifest", (WritableArray) args[3]);
+            }
+            RNFetchBlobReq task = null;
+            for(RNFetchBlobReq r : running) {
+                if(r.batchIndex == index)
+                    task = r;
+            }
+            if(task != null) {
+                result.putInt("status", task.batchStatus);
+                if(task.timings != null)
+                    result.putMap("timings", task.timings.toMap());
+                running.remove(task);
+            }
+            results[index] = result;
+            completed++;
+            finished = completed == results.length;
+            long now = System.currentTimeMillis();
+            report = finished || now - lastReport >= REPORT_INTERVAL;
+            if(report)
+                lastReport = now;
+        }
+        if(report)
+            emitProgress();
+        if(!finished) {
+            startNext();
+            return;
+        }
+        synchronized (batches) {
+            batches.remove(batchId);
+        }
+        WritableArray list = Arguments.createArray();
+        for(WritableMap result : results) {
+            list.pushMap(result);
+        }
+        callback.invoke(null, list);
+    }
+
+    private void emitProgress() {
+        WritableMap args = Arguments.createMap();
+        synchronized (this) {
+            args.putString("batchId", batchId);
+            args.putInt("completed", completed);
+            args.putInt("failed", failed);
+            args.putInt("total", results.length);
+        }
+        RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(RNFetchBlobConst.EVENT_BATCH_PROGRESS, args);
+    }
+
+}
@@ -1,18 +1,16 @@
 package com.RNFetchBlob;
 
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
 import android.util.Base64;
 
-import com.facebook.react.bridge.Arguments;
-import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
-import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -20,19 +18,27 @@ import java.util.ArrayList;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.BufferedSink;
+import okio.Okio;
 
 public class RNFetchBlobBody extends RequestBody{
 
-    InputStream requestStream;
+    // source of single content body
+    File bodyFile;
+    String bodyAsset;
+    byte[] bodyBytes;
     long contentLength = 0;
     ReadableArray form;
     String mTaskId;
     String rawBody;
     RNFetchBlobReq.RequestType requestType;
     MediaType mime;
-    File bodyCache;
+    ArrayList<FormField> formFields;
     int reported = 0;
+    // bytes of current write counted by metrics
+    long counted = 0;
     Boolean chunkedEncoding = false;
+    // computes digests of the body as it's sent, can be null
+    RNFetchBlobHasher hasher;
 
 
     public RNFetchBlobBody(String taskId) {
@@ -68,12 +74,11 @@ public class RNFetchBlobBody extends RequestBody{
         try {
             switch (requestType) {
                 case SingleFile:
-                    requestStream = getReuqestStream();
-                    contentLength = requestStream.available();
+                    resolveRequestSource();
                     break;
                 case AsIs:
-                    contentLength = this.rawBody.getBytes().length;
-                    requestStream = new ByteArrayInputStream(this.rawBody.getBytes());
+                    bodyBytes = this.rawBody.getBytes();
+                    contentLength = bodyBytes.length;
                     break;
                 case Others:
                     break;
@@ -93,9 +98,7 @@ public class RNFetchBlobBody extends RequestBody{
     RNFetchBlobBody setBody(ReadableArray body) {
         this.form = body;
         try {
-            bodyCache = createMultipartBodyCache();
-            requestStream = new FileInputStream(bodyCache);
-            contentLength = bodyCache.length();
+            formFields = prepareFormFields();
         } catch(Exception ex) {
             ex.printStackTrace();
             RNFetchBlobUtils.emitWarningEvent("RNFetchBlob failed to create request multipart body :" + ex.getLocalizedMessage());
@@ -114,28 +117,55 @@ public class RNFetchBlobBody extends RequestBody{
     }
 
     @Override
-    public void writeTo(BufferedSink sink) {
+    public void writeTo(BufferedSink sink) throws IOException {
+        counted = 0;
+        if(hasher == null) {
+            writeBody(sink);
+            return;
+        }
+        // the body may be written more than once when the request is retried
+        hasher.reset();
+        BufferedSink hashing = Okio.buffer(hasher.sink(sink));
+        writeBody(hashing);
+        hashing.emit();
+    }
+
+    private void writeBody(BufferedSink sink) throws IOException {
+        if(form != null) {
+            writeFormData(sink);
+            return;
+        }
+        InputStream stream;
+        if(bodyFile != null)
+            stream = new FileInputStream(bodyFile);
+        else if(bodyAsset != null)
+            stream = RNFetchBlob.RCTContext.getAssets().open(bodyAsset);
+        else if(bodyBytes != null)
+            stream = new ByteArrayInputStream(bodyBytes);
+        else
+            return;
+        byte[] buffer = RNFetchBlobBufferPool.acquire();
         try {
-            pipeStreamToSink(requestStream, sink);
-        } catch(Exception ex) {
+            pipeStreamToSink(stream, sink, contentLength, 0, buffer);
+        } catch(IOException ex) {
             RNFetchBlobUtils.emitWarningEvent(ex.getLocalizedMessage());
-            ex.printStackTrace();
+            throw ex;
+        } finally {
+            RNFetchBlobBufferPool.release(buffer);
         }
     }
 
     boolean clearRequestBody() {
-        try {
-            if (bodyCache != null && bodyCache.exists()) {
-                bodyCache.delete();
-            }
-        } catch(Exception e) {
-            RNFetchBlobUtils.emitWarningEvent(e.getLocalizedMessage());
-            return false;
-        }
+        bodyBytes = null;
         return true;
     }
 
-    private InputStream getReuqestStream() throws Exception {
+    /**
+     * Resolve source of single content body and its exact size, files and assets are streamed
+     * when the body is written, BASE64 content is decoded here.
+     * @throws Exception
+     */
+    private void resolveRequestSource() throws Exception {
 
         // upload from storage
         if (rawBody.startsWith(RNFetchBlobConst.FILE_PREFIX)) {
@@ -145,7 +175,8 @@ public class RNFetchBlobBody extends RequestBody{
             if (RNFetchBlobFS.isAsset(orgPath)) {
                 try {
                     String assetName = orgPath.replace(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET, "");
-                    return RNFetchBlob.RCTContext.getAssets().open(assetName);
+                    contentLength = getAssetLength(assetName);
+                    bodyAsset = assetName;
                 } catch (Exception e) {
                     throw new Exception("error when getting request stream from asset : " +e.getLocalizedMessage());
                 }
@@ -154,7 +185,8 @@ public class RNFetchBlobBody extends RequestBody{
                 try {
                     if(!f.exists())
                         f.createNewFile();
-                    return new FileInputStream(f);
+                    contentLength = f.length();
+                    bodyFile = f;
                 } catch (Exception e) {
                     throw new Exception("error when getting request stream: " +e.getLocalizedMessage());
                 }
@@ -163,8 +195,8 @@ public class RNFetchBlobBody extends RequestBody{
         // base 64 encoded
         else {
             try {
-                byte[] bytes = Base64.decode(rawBody, 0);
-                return  new ByteArrayInputStream(bytes);
+                bodyBytes = Base64.decode(rawBody, 0);
+                contentLength = bodyBytes.length;
             } catch(Exception ex) {
                 throw new Exception("error when getting request stream: " + ex.getLocalizedMessage());
             }
@@ -172,44 +204,117 @@ public class RNFetchBlobBody extends RequestBody{
     }
 
     /**
-     * Create a temp file that contains content of multipart form data content
-     * @return The cache file object
+     * Write multipart form data to request body, every part is streamed from its source so
+     * files are never copied before the upload starts. This may be invoked more than once when
+     * the request is retried, sources are opened again for each invocation.
+     * @param sink The request body buffer sink
      * @throws IOException
      */
-    private File createMultipartBodyCache() throws IOException {
-        String boundary = "RNFetchBlob-" + mTaskId;
+    private void writeFormData(BufferedSink sink) throws IOException {
+        if(formFields == null)
+            throw new IOException("RNFetchBlob failed to create request multipart body");
+        long written = 0;
+        byte[] buffer = RNFetchBlobBufferPool.acquire();
+        try {
+            for(FormField field : formFields) {
+                sink.writeUtf8(field.header);
+                written += field.headerLength;
+                if(field.file != null) {
+                    written = pipeStreamToSink(new FileInputStream(field.file), sink, field.length, written, buffer);
+                }
+                else if(field.assetName != null) {
+                    written = pipeStreamToSink(RNFetchBlob.RCTContext.getAssets().open(field.assetName), sink, field.length, written, buffer);
+                }
+                else if(field.base64) {
+                    byte[] bytes = Base64.decode(field.data, 0);
+                    sink.write(bytes);
+                    written += bytes.length;
+                }
+                else if(field.filename == null) {
+                    sink.writeUtf8(field.data);
+                    written += field.length;
+                }
+                sink.writeUtf8("\r\n");
+                written += 2;
+                emitUploadProgress(written);
+            }
+            // close the form
+            sink.writeUtf8("--" + getBoundary() + "--\r\n");
+        } finally {
+            RNFetchBlobBufferPool.release(buffer);
+        }
+    }
 
-        File outputDir = RNFetchBlob.RCTContext.getCacheDir(); // context being the Activity pointer
-        File outputFile = File.createTempFile("rnfb-form-tmp", "", outputDir);
-        FileOutputStream os = new FileOutputStream(outputFile);
+    private String getBoundary() {
+        return "RNFetchBlob-" + mTaskId;
+    }
 
-        ArrayList<FormField> fields = countFormDataLength();
-        ReactApplicationContext ctx = RNFetchBlob.RCTContext;
+    /**
+     * Pipe given number of bytes of input stream to request body output stream, the stream is
+     * closed afterwards.
+     * @param stream    The input stream
+     * @param sink      The request body buffer sink
+     * @param length    Number of bytes to write
+     * @param written   Number of bytes of the body which have been written
+     * @param buffer    Transfer buffer
+     * @return Number of bytes of the body which have been written
+     * @throws IOException
+     */
+    private long pipeStreamToSink(InputStream stream, BufferedSink sink, long length, long written, byte[] buffer) throws IOException {
+        try {
+            long remaining = length;
+            while (remaining > 0) {
+                int read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if(read == -1)
+                    throw new IOException("unexpected end of form data, the file may have been changed during upload");
+                sink.write(buffer, 0, read);
+                remaining -= read;
+                written += read;
+                emitUploadProgress(written);
+                RNFetchBlobBandwidth.consume(mTaskId, read);
+            }
+        } finally {
+            stream.close();
+        }
+        return written;
+    }
 
-        for(int i = 0;i < fields.size(); i++) {
-            FormField field = fields.get(i);
+    /**
+     * Resolve source of every form field and compute exact content length of the form, nothing
+     * is read or decoded here.
+     * @return Valid form fields
+     * @throws IOException
+     */
+    private ArrayList<FormField> prepareFormFields() throws IOException {
+        String boundary = getBoundary();
+        long total = 0;
+        ArrayList<FormField> list = new ArrayList<>();
+        for(int i = 0;i < form.size(); i++) {
+            FormField field = new FormField(form.getMap(i));
             String data = field.data;
             String name = field.name;
+            if(data == null) {
+                RNFetchBlobUtils.emitWarningEvent("RNFetchBlob multipart request builder has found a field without `data` property, the field `"+ field.name +"` will be removed implicitly.");
+                continue;
+            }
             // skip invalid fields
-            if(name == null || data == null)
+            if(name == null)
                 continue;
             // form begin
             String header = "--" + boundary + "\r\n";
             if (field.filename != null) {
                 header += "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + field.filename + "\"\r\n";
                 header += "Content-Type: " + field.mime + "\r\n\r\n";
-                os.write(header.getBytes());
-                // file field header end
                 // upload from storage
                 if (data.startsWith(RNFetchBlobConst.FILE_PREFIX)) {
                     String orgPath = data.substring(RNFetchBlobConst.FILE_PREFIX.length());
                     orgPath = RNFetchBlobFS.normalizePath(orgPath);
-                    // path starts with content://
+                    // path starts with asset://
                     if (RNFetchBlobFS.isAsset(orgPath)) {
+                        String assetName = orgPath.replace(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET, "");
                         try {
-                            String assetName = orgPath.replace(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET, "");
-                            InputStream in = ctx.getAssets().open(assetName);
-                            pipeStreamToFileStream(in, os);
+                            field.length = getAssetLength(assetName);
+                            field.assetName = assetName;
                         } catch (IOException e) {
                             RNFetchBlobUtils.emitWarningEvent("Failed to create form data asset :" + orgPath + ", " + e.getLocalizedMessage() );
                         }
@@ -218,8 +323,8 @@ public class RNFetchBlobBody extends RequestBody{
                     else {
                         File file = new File(RNFetchBlobFS.normalizePath(orgPath));
                         if(file.exists()) {
-                            FileInputStream fs = new FileInputStream(file);
-                            pipeStreamToFileStream(fs, os);
+                            field.file = file;
+                            field.length = file.length();
                         }
                         else {
                             RNFetchBlobUtils.emitWarningEvent("Failed to create form data from path :" + orgPath + ", file not exists.");
@@ -228,116 +333,98 @@ public class RNFetchBlobBody extends RequestBody{
                 }
                 // base64 embedded file content
                 else {
-                    byte[] b = Base64.decode(data, 0);
-                    os.write(b);
+                    field.base64 = true;
+                    field.length = getBase64DecodedLength(data);
                 }
-
             }
             // data field
             else {
                 header += "Content-Disposition: form-data; name=\"" + name + "\"\r\n";
                 header += "Content-Type: " + field.mime + "\r\n\r\n";
-                os.write(header.getBytes());
-                byte[] fieldData = field.data.getBytes();
-                os.write(fieldData);
+                field.length = getUTF8Length(data);
             }
-            // form end
-            os.write("\r\n".getBytes());
+            field.header = header;
+            field.headerLength = getUTF8Length(header);
+            // part header, content and the trailing CRLF
+            total += field.headerLength + field.length + 2;
+            list.add(field);
         }
-        // close the form
-        byte[] end = ("--" + boundary + "--\r\n").getBytes();
-        os.write(end);
-        os.flush();
-        os.close();
-        return outputFile;
+        total += getUTF8Length("--" + boundary + "--\r\n");
+        contentLength = total;
+        return list;
     }
 
     /**
-     * Pipe input stream to request body output stream
-     * @param stream    The input stream
-     * @param sink      The request body buffer sink
+     * Get size of an asset, compressed assets can not be opened as a file descriptor, their size
+     * is provided by the asset stream.
+     * @param assetName Name of the asset
+     * @return Size of the asset in bytes
      * @throws IOException
      */
-    private void pipeStreamToSink(InputStream stream, BufferedSink sink) throws Exception {
-
-        byte [] chunk = new byte[10240];
-        int totalWritten = 0;
-        int read;
-        while((read = stream.read(chunk, 0, 10240)) > 0) {
-            if(read > 0) {
-                sink.write(chunk, 0, read);
-                totalWritten += read;
-                emitUploadProgress(totalWritten);
+    private long getAssetLength(String assetName) throws IOException {
+        AssetManager assets = RNFetchBlob.RCTContext.getAssets();
+        try {
+            AssetFileDescriptor fd = assets.openFd(assetName);
+            try {
+                if(fd.getLength() >= 0)
+                    return fd.getLength();
+            } finally {
+                fd.close();
             }
+        } catch (FileNotFoundException ignored) {
+        }
+        InputStream in = assets.open(assetName);
+        try {
+            return in.available();
+        } finally {
+            in.close();
         }
-        stream.close();
     }
 
     /**
-     * Pipe input stream to a file
-     * @param is    The input stream
-     * @param os    The output stream to a file
-     * @throws IOException
+     * Compute length of BASE64 decoded data without decoding it. Like android.util.Base64,
+     * characters outside of the alphabet are skipped and padding ends the data.
+     * @param data BASE64 encoded string
+     * @return Number of decoded bytes
      */
-    private void pipeStreamToFileStream(InputStream is, FileOutputStream os) throws IOException {
-
-        byte[] buf = new byte[10240];
-        int len;
-        while ((len = is.read(buf)) > 0) {
-            os.write(buf, 0, len);
+    static long getBase64DecodedLength(String data) {
+        long count = 0;
+        for(int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if(c == '=')
+                break;
+            if((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/')
+                count++;
         }
-        is.close();
+        if(count % 4 == 1)
+            throw new IllegalArgumentException("bad base-64");
+        return count / 4 * 3 + (count % 4 == 0 ? 0 : count % 4 - 1);
     }
 
     /**
-     * Compute approximate content length for form data
-     * @return
+     * Compute length of UTF-8 encoded string without encoding it, unpaired surrogates are
+     * encoded as `?` like okio does.
+     * @param str The string
+     * @return Number of bytes
      */
-    private ArrayList<FormField> countFormDataLength() {
-        long total = 0;
-        ArrayList<FormField> list = new ArrayList<>();
-        ReactApplicationContext ctx = RNFetchBlob.RCTContext;
-        for(int i = 0;i < form.size(); i++) {
-            FormField field = new FormField(form.getMap(i));
-            list.add(field);
-            String data = field.data;
-            if(data == null) {
-                RNFetchBlobUtils.emitWarningEvent("RNFetchBlob multipart request builder has found a field without `data` property, the field `"+ field.name +"` will be removed implicitly.");
-            }
-            else if (field.filename != null) {
-                // upload from storage
-                if (data.startsWith(RNFetchBlobConst.FILE_PREFIX)) {
-                    String orgPath = data.substring(RNFetchBlobConst.FILE_PREFIX.length());
-                    orgPath = RNFetchBlobFS.normalizePath(orgPath);
-                    // path starts with asset://
-                    if (RNFetchBlobFS.isAsset(orgPath)) {
-                        try {
-                            String assetName = orgPath.replace(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET, "");
-                            long length = ctx.getAssets().open(assetName).available();
-                            total += length;
-                        } catch (IOException e) {
-                            RNFetchBlobUtils.emitWarningEvent(e.getLocalizedMessage());
-                        }
-                    }
-                    // general files
-                    else {
-                        File file = new File(RNFetchBlobFS.normalizePath(orgPath));
-                        total += file.length();
-                    }
-                }
-                // base64 embedded file content
-                else {
-                    byte[] bytes = Base64.decode(data, 0);
-                    total += bytes.length;
-                }
-            }
-            // data field
-            else {
-                total += field.data != null ? field.data.getBytes().length : 0;
+    static long getUTF8Length(String str) {
+        long length = 0;
+        for(int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if(c < 0x80)
+                length += 1;
+            else if(c < 0x800)
+                length += 2;
+            else if(!Character.isSurrogate(c))
+                length += 3;
+            else if(Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
             }
+            else
+                length += 1;
         }
-        contentLength = total;
-        return list;
+        return length;
     }
 
     /**
@@ -349,6 +436,13 @@ public class RNFetchBlobBody extends RequestBody{
         public String filename;
         public String mime;
         public String data;
+        String header;
+        long headerLength;
+        // source of the part content
+        File file;
+        String assetName;
+        boolean base64 = false;
+        long length = 0;
 
         public FormField(ReadableMap rawData) {
             if(rawData.hasKey("name"))
@@ -367,21 +461,15 @@ public class RNFetchBlobBody extends RequestBody{
     }
 
     /**
-     * Emit progress event
+     * Report upload progress, it's emitted by {@link RNFetchBlobProgressAggregator} on next frame.
      * @param written
      */
-    private void emitUploadProgress(int written) {
-        RNFetchBlobProgressConfig config = RNFetchBlobReq.getReportUploadProgress(mTaskId);
-        if(config != null && contentLength != 0 && config.shouldReport((float)written/contentLength)) {
-            WritableMap args = Arguments.createMap();
-            args.putString("taskId", mTaskId);
-            args.putString("written", String.valueOf(written));
-            args.putString("total", String.valueOf(contentLength));
-
-            // emit event to js context
-            RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit(RNFetchBlobConst.EVENT_UPLOAD_PROGRESS, args);
-        }
+    private void emitUploadProgress(long written) {
+        RNFetchBlobMetrics.onBytesOut(written - counted);
+        counted = written;
+        RNFetchBlobTaskRegistry.onBytesOut(mTaskId, written);
+        if(contentLength != 0)
+            RNFetchBlobProgressAggregator.update(mTaskId, written, contentLength, true);
     }
 
 }
@@ -0,0 +1,50 @@
+package com.RNFetchBlob;
+
+import java.util.ArrayDeque;
+
+/**
+ * A small pool of fixed size byte buffers, it's used by transfer loops which run for a long
+ * time so that they don't allocate a new buffer for each connection or stream.
+ */
+public class RNFetchBlobBufferPool {
+
+    public static final int BUFFER_SIZE = 65536;
+    private static final int MAX_POOLED = 16;
+
+    private static final ArrayDeque<byte[]> pool = new ArrayDeque<>();
+
+    /**
+     * Get a buffer of BUFFER_SIZE bytes, a new buffer is created when the pool is empty.
+     * @return Byte buffer
+     */
+    public static byte[] acquire() {
+        RNFetchBlobMetrics.buffersAcquired.increment();
+        synchronized (pool) {
+            byte[] buffer = pool.poll();
+            if(buffer != null)
+                return buffer;
+        }
+        RNFetchBlobMetrics.buffersAllocated.increment();
+        return new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Return the buffer to pool, it will be dropped when the pool is full.
+     * @param buffer Buffer acquired from this pool
+     */
+    public static void release(byte[] buffer) {
+        if(buffer == null || buffer.length != BUFFER_SIZE)
+            return;
+        synchronized (pool) {
+            if(pool.size() < MAX_POOLED)
+                pool.push(buffer);
+        }
+    }
+
+    static int getPooledCount() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+}
@@ -0,0 +1,354 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import okhttp3.CacheControl;
+import okhttp3.Headers;
+
+/**
+ * Disk cache of responses which are stored by `key` option. An index records size, last access
+ * time, validators and expiry of every cached file. Files are evicted in least recently used
+ * order when the total size exceeds the limit, and stale files are revalidated with a
+ * conditional request so a `304 Not Modified` response reuses the cached file. Only files in the
+ * temp folder of `fileCache` option are deleted by the cache, an evicted entry of a file at
+ * the `path` of the task is dropped from the index and the file is kept.
+ */
+public class RNFetchBlobCache {
+
+    public static class Entry {
+        public String key;
+        public String path;
+        public long size;
+        public long lastAccess;
+        public String etag;
+        public String lastModified;
+        // time in milliseconds until when the file can be used without revalidation
+        public long expires;
+
+        Entry(String key, String path) {
+            this.key = key;
+            this.path = path;
+        }
+
+        public boolean isFresh() {
+            return expires > System.currentTimeMillis();
+        }
+
+        public boolean hasValidator() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    private static final long DEFAULT_MAX_SIZE = 100 * 1024 * 1024;
+    // min interval between writes of the index which only change access order
+    private static final long SAVE_INTERVAL = 5000;
+
+    private static long maxSize = DEFAULT_MAX_SIZE;
+    private static long totalSize = 0;
+    // iteration order is from least recently used to most recently used
+    private static LinkedHashMap<String, Entry> index;
+    // the index has changes which have not been written
+    private static boolean dirty = false;
+    private static long lastSave = 0;
+
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long revalidated = 0;
+    private static long evictions = 0;
+    private static long evictedBytes = 0;
+
+    /**
+     * Find the cache entry of a key, entries whose file has been removed or changed are dropped.
+     * @param key Cache key
+     * @param path Path of the cached file
+     * @return Cache entry, null if the key is not cached.
+     */
+    static synchronized Entry get(String key, String path) {
+        loadIndex();
+        saveIfDirty();
+        Entry entry = index.get(key);
+        if(entry == null)
+            return null;
+        File file = new File(entry.path);
+        if(!entry.path.equals(path) || !file.exists() || file.length() != entry.size) {
+            index.remove(key);
+            totalSize -= entry.size;
+            saveIndex();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * A fresh cached file is used without sending a request.
+     * @param entry Cache entry
+     */
+    static synchronized void onHit(Entry entry) {
+        hits++;
+        touch(entry);
+    }
+
+    /**
+     * Server responded `304 Not Modified` to conditional request, the cached file is used and
+     * its expiry is updated.
+     * @param entry Cache entry
+     * @param headers Headers of 304 response
+     */
+    static synchronized void onRevalidated(Entry entry, Headers headers) {
+        revalidated++;
+        if(headers.get("ETag") != null)
+            entry.etag = headers.get("ETag");
+        if(headers.get("Last-Modified") != null)
+            entry.lastModified = headers.get("Last-Modified");
+        entry.expires = getExpiry(headers, entry.hasValidator());
+        touch(entry);
+    }
+
+    /**
+     * Add the downloaded file to cache, this is counted as a miss since the response has been
+     * downloaded. Least recently used files are evicted when cache size exceeds the limit.
+     * @param key Cache key
+     * @param path Path of the downloaded file
+     * @param headers Response headers
+     */
+    static synchronized void put(String key, String path, Headers headers) {
+        loadIndex();
+        misses++;
+        File file = new File(path);
+        if(!file.exists())
+            return;
+        Entry entry = index.remove(key);
+        if(entry != null)
+            totalSize -= entry.size;
+        entry = new Entry(key, path);
+        entry.size = file.length();
+        entry.etag = headers.get("ETag");
+        entry.lastModified = headers.get("Last-Modified");
+        entry.expires = getExpiry(headers, entry.hasValidator());
+        entry.lastAccess = System.currentTimeMillis();
+        index.put(key, entry);
+        totalSize += entry.size;
+        trim(key);
+        saveIndex();
+    }
+
+    /**
+     * Remove an entry from cache, the file is kept.
+     * @param key Cache key
+     */
+    static synchronized void remove(String key) {
+        loadIndex();
+        Entry entry = index.remove(key);
+        if(entry == null)
+            return;
+        totalSize -= entry.size;
+        saveIndex();
+    }
+
+    /**
+     * Change the max size of cache, files are evicted immediately when the cache is larger.
+     * @param size Max size in bytes
+     */
+    static synchronized void setMaxSize(long size) {
+        loadIndex();
+        maxSize = size;
+        trim(null);
+        saveIndex();
+    }
+
+    /**
+     * Remove all cached files.
+     */
+    static synchronized void clear() {
+        loadIndex();
+        for(Entry entry : index.values()) {
+            deleteFile(entry);
+        }
+        index.clear();
+        totalSize = 0;
+        saveIndex();
+    }
+
+    static synchronized WritableMap getStats() {
+        loadIndex();
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("size", totalSize);
+        stats.putDouble("maxSize", maxSize);
+        stats.putInt("count", index.size());
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putDouble("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        stats.putDouble("revalidated", revalidated);
+        stats.putDouble("evictions", evictions);
+        stats.putDouble("evictedBytes", evictedBytes);
+        return stats;
+    }
+
+    /**
+     * Compute expiry of a response. Responses without any freshness information or validator
+     * never expire, which is how `key` option always worked.
+     * @param headers Response headers
+     * @param hasValidator If the response can be revalidated
+     * @return Expiry time in milliseconds
+     */
+    private static long getExpiry(Headers headers, boolean hasValidator) {
+        CacheControl cacheControl = CacheControl.parse(headers);
+        if(cacheControl.noCache() || cacheControl.noStore())
+            return 0;
+        if(cacheControl.maxAgeSeconds() >= 0)
+            return System.currentTimeMillis() + cacheControl.maxAgeSeconds() * 1000L;
+        Date expires = headers.getDate("Expires");
+        if(expires != null)
+            return expires.getTime();
+        return hasValidator ? 0 : Long.MAX_VALUE;
+    }
+
+    private static void touch(Entry entry) {
+        entry.lastAccess = System.currentTimeMillis();
+        // move the entry to the end of LRU order
+        index.remove(entry.key);
+        index.put(entry.key, entry);
+        // a hit doesn't write the whole index every time, access order is saved with the next
+        // change or once the interval has passed
+        dirty = true;
+        saveIfDirty();
+    }
+
+    private static void saveIfDirty() {
+        if(dirty && System.currentTimeMillis() - lastSave >= SAVE_INTERVAL)
+            saveIndex();
+    }
+
+    /**
+     * Delete the file of an entry if it's owned by the cache, files of `path` option belong to
+     * the app.
+     */
+    private static void deleteFile(Entry entry) {
+        String tmpPrefix = RNFetchBlobFS.getTmpPath(RNFetchBlob.RCTContext, "");
+        if(entry.path.startsWith(tmpPrefix))
+            new File(entry.path).delete();
+    }
+
+    /**
+     * Evict least recently used entries until the cache fits its max size.
+     * @param keep Key of the entry which must not be evicted, can be null.
+     */
+    private static void trim(String keep) {
+        Iterator<Entry> it = index.values().iterator();
+        while (totalSize > maxSize && it.hasNext()) {
+            Entry entry = it.next();
+            if(entry.key.equals(keep))
+                continue;
+            it.remove();
+            deleteFile(entry);
+            totalSize -= entry.size;
+            evictions++;
+            evictedBytes += entry.size;
+        }
+    }
+
+    private static void loadIndex() {
+        if(index != null)
+            return;
+        index = new LinkedHashMap<>();
+        totalSize = 0;
+        File file = getIndexFile();
+        if(!file.exists())
+            return;
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            FileInputStream in = new FileInputStream(file);
+            try {
+                int read = 0;
+                while (read < bytes.length) {
+                    int n = in.read(bytes, read, bytes.length - read);
+                    if(n < 0)
+                        break;
+                    read += n;
+                }
+            } finally {
+                in.close();
+            }
+            JSONObject json = new JSONObject(new String(bytes, "UTF-8"));
+            maxSize = json.optLong("maxSize", DEFAULT_MAX_SIZE);
+            JSONArray entries = json.getJSONArray("entries");
+            ArrayList<Entry> list = new ArrayList<>();
+            for(int i = 0; i < entries.length(); i++) {
+                JSONObject item = entries.getJSONObject(i);
+                Entry entry = new Entry(item.getString("key"), item.getString("path"));
+                entry.size = item.getLong("size");
+                entry.lastAccess = item.getLong("lastAccess");
+                entry.etag = item.optString("etag", null);
+                entry.lastModified = item.optString("lastModified", null);
+                entry.expires = item.getLong("expires");
+                list.add(entry);
+            }
+            // entries are stored in LRU order
+            for(Entry entry : list) {
+                index.put(entry.key, entry);
+                totalSize += entry.size;
+            }
+        } catch (Exception ex) {
+            RNFetchBlobUtils.emitWarningEvent("RNFetchBlob failed to read cache index : " + ex.getLocalizedMessage());
+            index.clear();
+            totalSize = 0;
+            file.delete();
+        }
+    }
+
+    private static void saveIndex() {
+        dirty = false;
+        lastSave = System.currentTimeMillis();
+        File file = getIndexFile();
+        try {
+            JSONArray entries = new JSONArray();
+            for(Entry entry : index.values()) {
+                JSONObject item = new JSONObject();
+                item.put("key", entry.key);
+                item.put("path", entry.path);
+                item.put("size", entry.size);
+                item.put("lastAccess", entry.lastAccess);
+                item.put("etag", entry.etag);
+                item.put("lastModified", entry.lastModified);
+                item.put("expires", entry.expires);
+                entries.put(item);
+            }
+            JSONObject json = new JSONObject();
+            json.put("maxSize", maxSize);
+            json.put("entries", entries);
+            File dir = file.getParentFile();
+            if(!dir.exists())
+                dir.mkdirs();
+            // write to a temp file first so a crash never leaves a broken index
+            File tmp = new File(file.getPath() + ".tmp");
+            FileOutputStream os = new FileOutputStream(tmp);
+            try {
+                os.write(json.toString().getBytes("UTF-8"));
+            } finally {
+                os.close();
+            }
+            if(!tmp.renameTo(file))
+                throw new IOException("failed to rename " + tmp);
+        } catch (Exception ex) {
+            RNFetchBlobUtils.emitWarningEvent("RNFetchBlob failed to write cache index : " + ex.getLocalizedMessage());
+        }
+    }
+
+    private static File getIndexFile() {
+        return new File(RNFetchBlob.RCTContext.getFilesDir(), "RNFetchBlobCache/index.json");
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.RNFetchBlob;
+
+import android.os.Build;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Keeps one OkHttpClient for each combination of the request options that actually change
+ * client level settings (`trusty`, `timeout`, `followRedirect` and TLS mode), so tasks with the
+ * same profile share the client, its dispatcher and its SSL context instead of building a new
+ * client for every request. Per-task behaviour is looked up from the request tag by the shared
+ * interceptors.
+ */
+public class RNFetchBlobClientCache {
+
+    private static OkHttpClient baseClient;
+    private static HashMap<String, OkHttpClient> clients = new HashMap<>();
+
+    /**
+     * Record redirected URLs of the task which the request belongs to.
+     */
+    static final Interceptor redirectInterceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Object tag = chain.request().tag();
+            if(tag instanceof RNFetchBlobReq)
+                ((RNFetchBlobReq) tag).redirects.add(chain.request().url().toString());
+            return chain.proceed(chain.request());
+        }
+    };
+
+    /**
+     * Replace response body with the task's customized body, which writes data to storage or
+     * reports progress.
+     */
+    static final Interceptor responseInterceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Object tag = chain.request().tag();
+            if(tag instanceof RNFetchBlobReq)
+                return ((RNFetchBlobReq) tag).interceptResponse(chain);
+            return chain.proceed(chain.request());
+        }
+    };
+
+    /**
+     * Get the client for given request options, the client will be created when there's no
+     * client of the same profile.
+     * @param client The client provided by React Native, it's used as the base of all profiles.
+     * @param options Request options.
+     * @return OkHttpClient of the profile.
+     */
+    static synchronized OkHttpClient get(OkHttpClient client, RNFetchBlobConfig options) {
+        // React Native creates a new base client when the context reloads, clients of the old
+        // base client are no longer valid.
+        if(baseClient != client) {
+            baseClient = client;
+            clients.clear();
+        }
+        String key = getProfileKey(options);
+        OkHttpClient cached = clients.get(key);
+        if(cached != null)
+            return cached;
+
+        OkHttpClient.Builder clientBuilder;
+        // use trusty SSL socket
+        if (options.trusty) {
+            clientBuilder = RNFetchBlobUtils.getUnsafeOkHttpClient(client);
+        } else {
+            clientBuilder = client.newBuilder();
+        }
+
+        // #156 fix cookie issue
+        clientBuilder.addNetworkInterceptor(redirectInterceptor);
+        // Add request interceptor for upload progress event
+        clientBuilder.addInterceptor(responseInterceptor);
+        // phases of every call are recorded by the task's timings
+        clientBuilder.eventListenerFactory(RNFetchBlobTimings.factory);
+
+        if(options.timeout >= 0) {
+            clientBuilder.connectTimeout(options.timeout, TimeUnit.MILLISECONDS);
+            clientBuilder.readTimeout(options.timeout, TimeUnit.MILLISECONDS);
+        }
+
+        clientBuilder.connectionPool(RNFetchBlobConnectionPool.get());
+        clientBuilder.followRedirects(options.followRedirect);
+        clientBuilder.followSslRedirects(options.followRedirect);
+        // only covers stale pooled connections, other failures are retried by `retry` option
+        clientBuilder.retryOnConnectionFailure(true);
+
+        cached = RNFetchBlobReq.enableTls12OnPreLollipop(clientBuilder).build();
+        clients.put(key, cached);
+        return cached;
+    }
+
+    /**
+     * Remove all cached clients, they will be created again on demand.
+     */
+    static synchronized void clear() {
+        clients.clear();
+    }
+
+    private static String getProfileKey(RNFetchBlobConfig options) {
+        return options.trusty + ":" + options.timeout + ":" + options.followRedirect + ":" + (isTls12Forced() ? "tls12" : "default");
+    }
+
+    private static boolean isTls12Forced() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && Build.VERSION.SDK_INT <= Build.VERSION_CODES.KITKAT;
+    }
+
+}
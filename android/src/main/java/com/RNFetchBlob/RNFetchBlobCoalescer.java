@@ -0,0 +1,202 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Shares one in-flight transfer between identical GET requests which enable `coalesce` option.
+ * The first task (leader) performs the request, tasks which have the same method, URL, headers
+ * and destination join it as followers. Progress and state events of the transfer are emitted
+ * for every member, and the final result is passed to the callback of every member. Cancelling
+ * a member only detaches it, the transfer is cancelled when no member is left.
+ */
+public class RNFetchBlobCoalescer {
+
+    static class Group {
+        final String key;
+        final RNFetchBlobReq leader;
+        final Callback leaderCallback;
+        // members which are waiting for the result, including the leader
+        final LinkedHashMap<String, RNFetchBlobReq> members = new LinkedHashMap<>();
+        boolean finished = false;
+
+        Group(String key, RNFetchBlobReq leader) {
+            this.key = key;
+            this.leader = leader;
+            this.leaderCallback = leader.callback;
+            this.members.put(leader.taskId, leader);
+        }
+    }
+
+    private static final HashMap<String, Group> groups = new HashMap<>();
+    private static final HashMap<String, Group> memberGroups = new HashMap<>();
+    // groups by task ID of the leader, which is the task ID of the transfer's events
+    private static final HashMap<String, Group> transfers = new HashMap<>();
+
+    /**
+     * Join the in-flight transfer of an identical request, the task becomes the leader of a new
+     * transfer when there's no such transfer.
+     * @param task HTTP task
+     * @return True if the task has joined a transfer and should not send its own request.
+     */
+    static boolean join(RNFetchBlobReq task) {
+        if(!isSupported(task))
+            return false;
+        String key = getKey(task);
+        synchronized (groups) {
+            Group group = groups.get(key);
+            if(group != null) {
+                group.members.put(task.taskId, task);
+                memberGroups.put(task.taskId, group);
+                return true;
+            }
+            final Group created = new Group(key, task);
+            task.callback = new Callback() {
+                @Override
+                public void invoke(Object... args) {
+                    complete(created, args);
+                }
+            };
+            groups.put(key, created);
+            memberGroups.put(task.taskId, created);
+            transfers.put(task.taskId, created);
+            return false;
+        }
+    }
+
+    /**
+     * Detach a task from its transfer.
+     * @param taskId Task ID
+     * @return Task ID of the transfer which should be cancelled, null when the task has been
+     * detached and the transfer keeps running for other members.
+     */
+    static String detach(String taskId) {
+        Group group;
+        RNFetchBlobReq member;
+        synchronized (groups) {
+            group = memberGroups.get(taskId);
+            if(group == null)
+                return taskId;
+            // the last member is leaving, the transfer is no longer needed
+            if(group.members.size() <= 1)
+                return group.leader.taskId;
+            member = group.members.remove(taskId);
+            memberGroups.remove(taskId);
+        }
+        if(member == group.leader) {
+            // resources of the leader are released when the transfer ends
+            group.leaderCallback.invoke("Canceled", null, null);
+        }
+        else {
+            member.callback.invoke("Canceled", null, null);
+            member.releaseTaskResource();
+        }
+        return null;
+    }
+
+    /**
+     * Get IDs of the tasks which receive events of a task's transfer.
+     * @param taskId Task ID of the task which performs the transfer
+     * @return Task IDs of the members, or the task itself when the transfer is not shared.
+     */
+    static List<String> getMembers(String taskId) {
+        synchronized (groups) {
+            Group group = transfers.get(taskId);
+            if(group == null)
+                return Collections.singletonList(taskId);
+            return new ArrayList<>(group.members.keySet());
+        }
+    }
+
+    private static void complete(Group group, Object... args) {
+        ArrayList<RNFetchBlobReq> targets;
+        synchronized (groups) {
+            if(group.finished) {
+                targets = new ArrayList<>();
+                if(group.members.containsKey(group.leader.taskId))
+                    targets.add(group.leader);
+            }
+            else {
+                group.finished = true;
+                if(groups.get(group.key) == group)
+                    groups.remove(group.key);
+                transfers.remove(group.leader.taskId);
+                for(String id : group.members.keySet()) {
+                    memberGroups.remove(id);
+                }
+                targets = new ArrayList<>(group.members.values());
+            }
+        }
+        for(RNFetchBlobReq member : targets) {
+            if(member == group.leader) {
+                group.leaderCallback.invoke(args);
+            }
+            else {
+                member.callback.invoke(args);
+                member.releaseTaskResource();
+            }
+        }
+    }
+
+    /**
+     * Only GET requests which enable `coalesce` option are shared, `increment` mode and `framing`
+     * deliver data by events of a single task so they're excluded, and so is `extractTo` whose
+     * manifest can only be passed to one callback.
+     */
+    private static boolean isSupported(RNFetchBlobReq task) {
+        return task.options.coalesce
+                && task.method.equalsIgnoreCase("get")
+                && !task.options.increment
+                && task.options.framing == null
+                && task.options.extractTo == null;
+    }
+
+    /**
+     * Requests are identical when they have the same method, URL, headers, and handle the
+     * response in the same way, including the digests they compute and verify.
+     */
+    private static String getKey(RNFetchBlobReq task) {
+        StringBuilder key = new StringBuilder();
+        key.append(task.method).append(' ').append(task.url);
+        if(task.headers != null) {
+            ArrayList<String> names = new ArrayList<>();
+            ReadableMapKeySetIterator it = task.headers.keySetIterator();
+            while (it.hasNextKey()) {
+                names.add(it.nextKey());
+            }
+            Collections.sort(names);
+            for(String name : names) {
+                key.append('\n').append(name.toLowerCase()).append(": ").append(task.headers.getString(name));
+            }
+        }
+        key.append('\n').append(task.responseType)
+                .append(':').append(task.destPath)
+                .append(':').append(task.options.overwrite)
+                .append(':').append(task.options.auto)
+                .append(':').append(task.options.trusty)
+                .append(':').append(task.options.followRedirect)
+                .append(':').append(task.options.timeout)
+                .append(':').append(task.options.memoryThreshold);
+        // every member verifies and receives the digests it asked for
+        key.append('\n').append(task.options.hash).append(':').append(task.options.uploadHash);
+        if(task.options.expectedHash != null) {
+            ArrayList<String> names = new ArrayList<>();
+            ReadableMapKeySetIterator it = task.options.expectedHash.keySetIterator();
+            while (it.hasNextKey()) {
+                names.add(it.nextKey());
+            }
+            Collections.sort(names);
+            for(String name : names) {
+                key.append(':').append(name.toLowerCase()).append('=').append(task.options.expectedHash.getString(name).toLowerCase());
+            }
+        }
+        return key.toString();
+    }
+
+}
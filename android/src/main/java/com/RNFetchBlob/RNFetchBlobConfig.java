@@ -2,7 +2,10 @@ package com.RNFetchBlob;
 
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 
 
@@ -21,6 +24,21 @@ public class RNFetchBlobConfig {
     public Boolean increment = false;
     public Boolean followRedirect = true;
     public ReadableArray binaryContentTypes = null;
+    public Boolean resumable = false;
+    public String priority = null;
+    public Boolean coalesce = false;
+    public int segments = 0;
+    public long segmentSize = 4 * 1024 * 1024;
+    public String extractTo = null;
+    public ArrayList<String> hash = new ArrayList<>();
+    public ArrayList<String> uploadHash = new ArrayList<>();
+    public ReadableMap expectedHash = null;
+    public long maxBandwidth = 0;
+    public Boolean sharedBandwidth = null;
+    public RNFetchBlobRetryPolicy retry = null;
+    public long memoryThreshold = 0;
+    public String framing = null;
+    public long framingInterval = -1;
 
     RNFetchBlobConfig(ReadableMap options) {
         if(options == null)
@@ -49,6 +67,65 @@ public class RNFetchBlobConfig {
         if(options.hasKey("timeout")) {
             this.timeout = options.getInt("timeout");
         }
+        this.priority = options.hasKey("priority") ? options.getString("priority") : null;
+        this.coalesce = options.hasKey("coalesce") && options.getBoolean("coalesce");
+        if(options.hasKey("resumable")) {
+            this.resumable = options.getBoolean("resumable");
+        }
+        if(options.hasKey("segments")) {
+            this.segments = options.getInt("segments");
+        }
+        if(options.hasKey("segmentSize")) {
+            this.segmentSize = (long) options.getDouble("segmentSize");
+        }
+        this.extractTo = options.hasKey("extractTo") ? options.getString("extractTo") : null;
+        if(options.hasKey("maxBandwidth"))
+            this.maxBandwidth = (long) options.getDouble("maxBandwidth");
+        if(options.hasKey("sharedBandwidth"))
+            this.sharedBandwidth = options.getBoolean("sharedBandwidth");
+        if(options.hasKey("retry") && !options.isNull("retry")) {
+            if(options.getType("retry") == ReadableType.Map) {
+                this.retry = RNFetchBlobRetryPolicy.fromMap(options.getMap("retry"));
+            }
+            else {
+                this.retry = new RNFetchBlobRetryPolicy();
+                this.retry.attempts = options.getInt("retry");
+            }
+        }
+        if(options.hasKey("memoryThreshold"))
+            this.memoryThreshold = (long) options.getDouble("memoryThreshold");
+        this.framing = options.hasKey("framing") ? options.getString("framing") : null;
+        if(options.hasKey("framingInterval"))
+            this.framingInterval = (long) options.getDouble("framingInterval");
+        this.hash = getStringList(options, "hash");
+        this.uploadHash = getStringList(options, "uploadHash");
+        if(options.hasKey("expectedHash") && !options.isNull("expectedHash")) {
+            this.expectedHash = options.getMap("expectedHash");
+            // expected digests are always computed
+            ReadableMapKeySetIterator it = expectedHash.keySetIterator();
+            while (it.hasNextKey()) {
+                this.hash.add(it.nextKey());
+            }
+        }
+    }
+
+    /**
+     * Read an option which is either a string or an array of strings.
+     */
+    private static ArrayList<String> getStringList(ReadableMap options, String key) {
+        ArrayList<String> list = new ArrayList<>();
+        if(!options.hasKey(key) || options.isNull(key))
+            return list;
+        if(options.getType(key) == ReadableType.Array) {
+            ReadableArray array = options.getArray(key);
+            for(int i = 0; i < array.size(); i++) {
+                list.add(array.getString(i));
+            }
+        }
+        else {
+            list.add(options.getString(key));
+        }
+        return list;
     }
 
 }
@@ -0,0 +1,140 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The connection pool shared by clients of all request profiles. Its size and keep-alive
+ * duration can be configured, and connections to known hosts can be opened in advance so the
+ * first request to a host does not pay for DNS lookup, TCP connect and TLS handshake.
+ */
+public class RNFetchBlobConnectionPool {
+
+    private static final int DEFAULT_MAX_IDLE = 5;
+    private static final long DEFAULT_KEEP_ALIVE = 5 * 60 * 1000;
+
+    private static int maxIdleConnections = DEFAULT_MAX_IDLE;
+    private static long keepAliveDuration = DEFAULT_KEEP_ALIVE;
+    private static ConnectionPool pool = new ConnectionPool(maxIdleConnections, keepAliveDuration, TimeUnit.MILLISECONDS);
+
+    static synchronized ConnectionPool get() {
+        return pool;
+    }
+
+    /**
+     * Replace the shared pool with a pool of given size, idle connections of the old pool are
+     * closed and connections in use are closed when their requests are finished.
+     * @param maxIdle Max number of idle connections, zero or negative value keeps current value.
+     * @param keepAlive Time in milliseconds an idle connection is kept, zero or negative value
+     *                  keeps current value.
+     */
+    static void configure(int maxIdle, long keepAlive) {
+        ConnectionPool old;
+        synchronized (RNFetchBlobConnectionPool.class) {
+            if(maxIdle > 0)
+                maxIdleConnections = maxIdle;
+            if(keepAlive > 0)
+                keepAliveDuration = keepAlive;
+            old = pool;
+            pool = new ConnectionPool(maxIdleConnections, keepAliveDuration, TimeUnit.MILLISECONDS);
+        }
+        // clients are bound to the old pool
+        RNFetchBlobClientCache.clear();
+        old.evictAll();
+    }
+
+    static synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        int total = pool.connectionCount();
+        int idle = pool.idleConnectionCount();
+        stats.putInt("connections", total);
+        stats.putInt("idle", idle);
+        stats.putInt("active", total - idle);
+        stats.putInt("maxIdleConnections", maxIdleConnections);
+        stats.putDouble("keepAliveDuration", keepAliveDuration);
+        return stats;
+    }
+
+    /**
+     * Open a connection to each host and keep it in pool. OkHttp does not connect without a
+     * request, so a `HEAD` request is sent to the root of the host, its response is discarded.
+     * @param client OkHttpClient provided by React Native.
+     * @param hosts Host names or URLs, `https` is used when the scheme is omitted.
+     * @param promise Resolved with a result of each host when all connections are made.
+     */
+    static void preconnect(OkHttpClient client, ReadableArray hosts, final Promise promise) {
+        OkHttpClient shared = RNFetchBlobClientCache.get(client, new RNFetchBlobConfig(Arguments.createMap()));
+        final int count = hosts.size();
+        final WritableMap[] results = new WritableMap[count];
+        final AtomicInteger remaining = new AtomicInteger(count);
+        if(count == 0) {
+            promise.resolve(Arguments.createArray());
+            return;
+        }
+        for(int i = 0; i < count; i++) {
+            final int index = i;
+            final String host = hosts.getString(i);
+            final long start = System.currentTimeMillis();
+            HttpUrl url = HttpUrl.parse(host.contains("://") ? host : "https://" + host);
+            if(url == null) {
+                results[index] = createResult(host, "invalid host " + host, start);
+                if(remaining.decrementAndGet() == 0)
+                    resolve(promise, results);
+                continue;
+            }
+            Request request = new Request.Builder()
+                    .url(url.newBuilder().encodedPath("/").query(null).build())
+                    .head()
+                    .build();
+            shared.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    results[index] = createResult(host, e.getLocalizedMessage(), start);
+                    if(remaining.decrementAndGet() == 0)
+                        resolve(promise, results);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    // closing the response returns the connection to pool
+                    response.close();
+                    results[index] = createResult(host, null, start);
+                    if(remaining.decrementAndGet() == 0)
+                        resolve(promise, results);
+                }
+            });
+        }
+    }
+
+    private static WritableMap createResult(String host, String error, long start) {
+        WritableMap result = Arguments.createMap();
+        result.putString("host", host);
+        result.putString("error", error);
+        result.putDouble("time", System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private static void resolve(Promise promise, WritableMap[] results) {
+        WritableArray list = Arguments.createArray();
+        for(WritableMap result : results) {
+            list.pushMap(result);
+        }
+        promise.resolve(list);
+    }
+
+}
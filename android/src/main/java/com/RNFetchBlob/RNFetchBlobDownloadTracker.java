@@ -0,0 +1,194 @@
+package com.RNFetchBlob;
+
+import android.app.DownloadManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.Cursor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks tasks which are performed by Android download manager. A single receiver of
+ * `ACTION_DOWNLOAD_COMPLETE` dispatches completion to the task by download ID, and while
+ * downloads are active a poller queries progress of all of them with a single query and feeds
+ * it to normal progress events. The receiver and the poller stop when no download is active.
+ */
+public class RNFetchBlobDownloadTracker {
+
+    private static final long POLL_INTERVAL = 500;
+
+    private static final ConcurrentHashMap<Long, RNFetchBlobReq> downloads = new ConcurrentHashMap<>();
+    private static final Object lock = new Object();
+    private static BroadcastReceiver receiver;
+    private static ScheduledExecutorService timer;
+    private static ScheduledFuture<?> pollTask;
+
+    /**
+     * Start tracking a download which has been enqueued.
+     * @param task HTTP task
+     * @param downloadId ID of the download returned by download manager
+     */
+    static void track(RNFetchBlobReq task, long downloadId) {
+        synchronized (lock) {
+            downloads.put(downloadId, task);
+            if(receiver == null) {
+                receiver = new BroadcastReceiver() {
+                    @Override
+                    public void onReceive(Context context, Intent intent) {
+                        if(!DownloadManager.ACTION_DOWNLOAD_COMPLETE.equals(intent.getAction()))
+                            return;
+                        final long id = intent.getLongExtra(DownloadManager.EXTRA_DOWNLOAD_ID, -1);
+                        // the provider is queried off the main thread
+                        getTimer().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                complete(id);
+                            }
+                        });
+                    }
+                };
+                getContext().registerReceiver(receiver, new IntentFilter(DownloadManager.ACTION_DOWNLOAD_COMPLETE));
+            }
+            if(pollTask == null) {
+                pollTask = getTimer().scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        poll();
+                    }
+                }, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Remove a download of a cancelled task from download manager.
+     * @param taskId Task ID
+     * @return The task, null if the task is not performed by download manager.
+     */
+    static RNFetchBlobReq cancel(String taskId) {
+        for(Long id : downloads.keySet()) {
+            RNFetchBlobReq task = downloads.get(id);
+            if(task != null && task.taskId.equals(taskId) && untrack(id) != null) {
+                getDownloadManager().remove(id);
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private static void complete(long id) {
+        RNFetchBlobReq task = untrack(id);
+        if(task == null)
+            return;
+        DownloadManager.Query query = new DownloadManager.Query();
+        query.setFilterById(id);
+        Cursor c = getDownloadManager().query(query);
+        try {
+            if(c != null && c.moveToFirst()) {
+                task.onDownloadManagerComplete(
+                        c.getInt(c.getColumnIndex(DownloadManager.COLUMN_STATUS)),
+                        c.getString(c.getColumnIndex(DownloadManager.COLUMN_LOCAL_URI)));
+            }
+            else {
+                task.onDownloadManagerComplete(-1, null);
+            }
+        } finally {
+            if(c != null)
+                c.close();
+        }
+    }
+
+    /**
+     * Query progress of every active download at once.
+     */
+    private static void poll() {
+        if(downloads.isEmpty())
+            return;
+        long[] ids = new long[downloads.size()];
+        int n = 0;
+        for(Long id : downloads.keySet()) {
+            if(n == ids.length)
+                break;
+            ids[n++] = id;
+        }
+        if(n < ids.length) {
+            long[] copy = new long[n];
+            System.arraycopy(ids, 0, copy, 0, n);
+            ids = copy;
+        }
+        DownloadManager.Query query = new DownloadManager.Query();
+        query.setFilterById(ids);
+        Cursor c = null;
+        try {
+            c = getDownloadManager().query(query);
+            if(c == null)
+                return;
+            int idColumn = c.getColumnIndex(DownloadManager.COLUMN_ID);
+            int bytesColumn = c.getColumnIndex(DownloadManager.COLUMN_BYTES_DOWNLOADED_SO_FAR);
+            int totalColumn = c.getColumnIndex(DownloadManager.COLUMN_TOTAL_SIZE_BYTES);
+            while (c.moveToNext()) {
+                RNFetchBlobReq task = downloads.get(c.getLong(idColumn));
+                if(task == null)
+                    continue;
+                // total size is -1 until the response headers arrive
+                RNFetchBlobReq.emitProgressEvent(task.taskId, c.getLong(bytesColumn), c.getLong(totalColumn));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if(c != null)
+                c.close();
+        }
+    }
+
+    /**
+     * Stop tracking a download, the receiver and the poller stop with the last download.
+     * @return The task, null if the download is not tracked.
+     */
+    private static RNFetchBlobReq untrack(long id) {
+        synchronized (lock) {
+            RNFetchBlobReq task = downloads.remove(id);
+            if(downloads.isEmpty()) {
+                if(receiver != null) {
+                    getContext().unregisterReceiver(receiver);
+                    receiver = null;
+                }
+                if(pollTask != null) {
+                    pollTask.cancel(false);
+                    pollTask = null;
+                }
+            }
+            return task;
+        }
+    }
+
+    private static Context getContext() {
+        return RNFetchBlob.RCTContext.getApplicationContext();
+    }
+
+    private static DownloadManager getDownloadManager() {
+        return (DownloadManager) getContext().getSystemService(Context.DOWNLOAD_SERVICE);
+    }
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if(timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RNFetchBlobDownloads");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return timer;
+    }
+
+}
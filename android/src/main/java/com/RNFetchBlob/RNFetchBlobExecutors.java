@@ -0,0 +1,203 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread pools of the module, one for each class of workload so that a slow workload can't
+ * starve the others:
+ *
+ *  - `http` starts HTTP tasks admitted by the scheduler.
+ *  - `io` runs blocking file system operations.
+ *  - `cpu` runs file operations which are dominated by encoding, like base64 and ascii.
+ *  - `stream` runs read streams.
+ *
+ * Every pool has a fixed number of threads which time out when idle, and a bounded queue. A task
+ * which doesn't fit in a full queue is not run, the submitter reports an error to JS, or keeps
+ * the task queued like the scheduler does, and the rejection is counted in metrics.
+ */
+public class RNFetchBlobExecutors {
+
+    private static final long KEEP_ALIVE = 5000;
+
+    /**
+     * A named thread pool which can be resized.
+     */
+    static class Pool {
+        final String name;
+        private int threads;
+        private int queueSize;
+        // Android thread priority, from -20 (highest) to 19 (lowest)
+        private int priority;
+        private volatile ThreadPoolExecutor executor;
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Pool(String name, int threads, int queueSize, int priority) {
+            this.name = name;
+            this.threads = threads;
+            this.queueSize = queueSize;
+            this.priority = priority;
+            this.executor = create();
+        }
+
+        /**
+         * Run a task on the pool.
+         * @param task Task
+         * @return False if the queue is full, the task is not run.
+         */
+        boolean execute(Runnable task) {
+            try {
+                executor.execute(task);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Run a task on the pool, an error is passed to the callback when the queue is full.
+         */
+        void execute(Runnable task, Callback callback) {
+            if(!execute(task))
+                callback.invoke(getRejectedMessage());
+        }
+
+        /**
+         * Run a task on the pool, the promise is rejected when the queue is full.
+         */
+        void execute(Runnable task, Promise promise) {
+            if(!execute(task))
+                promise.reject("RNFetchBlob.executor", getRejectedMessage());
+        }
+
+        String getRejectedMessage() {
+            return "RNFetchBlob executor `" + name + "` is full";
+        }
+
+        /**
+         * Change the size of the pool, queued and running tasks are finished by the previous
+         * executor, which stops afterwards.
+         * @param threads Number of threads, zero or negative value keeps the current value.
+         * @param queueSize Capacity of the queue, zero or negative value keeps the current value.
+         * @param priority Android thread priority of new threads.
+         */
+        synchronized void configure(int threads, int queueSize, int priority) {
+            if(threads > 0)
+                this.threads = threads;
+            if(queueSize > 0)
+                this.queueSize = queueSize;
+            this.priority = Math.max(android.os.Process.THREAD_PRIORITY_URGENT_AUDIO, Math.min(android.os.Process.THREAD_PRIORITY_LOWEST, priority));
+            ThreadPoolExecutor previous = executor;
+            executor = create();
+            previous.shutdown();
+        }
+
+        private ThreadPoolExecutor create() {
+            final int threadPriority = priority;
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            android.os.Process.setThreadPriority(threadPriority);
+                            r.run();
+                        }
+                    }, "RNFetchBlob-" + name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable r, ThreadPoolExecutor rejectedBy) {
+                    // the executor has been replaced by `configure`, the task goes to the new one
+                    ThreadPoolExecutor current = executor;
+                    if(rejectedBy != current && rejectedBy.isShutdown()) {
+                        current.execute(r);
+                        return;
+                    }
+                    rejected.incrementAndGet();
+                    RNFetchBlobMetrics.rejected.increment();
+                    throw new RejectedExecutionException(getRejectedMessage());
+                }
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+
+        synchronized int getPriority() {
+            return priority;
+        }
+
+        synchronized WritableMap getStats() {
+            ThreadPoolExecutor pool = executor;
+            WritableMap stats = Arguments.createMap();
+            stats.putInt("threads", threads);
+            stats.putInt("queueSize", queueSize);
+            stats.putInt("priority", priority);
+            stats.putInt("active", pool.getActiveCount());
+            stats.putInt("poolSize", pool.getPoolSize());
+            stats.putInt("queued", pool.getQueue().size());
+            stats.putDouble("completed", pool.getCompletedTaskCount());
+            stats.putDouble("rejected", rejected.get());
+            return stats;
+        }
+    }
+
+    static final Pool http = new Pool("http", 5, 256, android.os.Process.THREAD_PRIORITY_BACKGROUND + android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
+    static final Pool io = new Pool("io", 4, 128, android.os.Process.THREAD_PRIORITY_BACKGROUND);
+    static final Pool cpu = new Pool("cpu", Math.max(2, Runtime.getRuntime().availableProcessors() - 1), 64, android.os.Process.THREAD_PRIORITY_BACKGROUND);
+    static final Pool stream = new Pool("stream", 2, 128, android.os.Process.THREAD_PRIORITY_BACKGROUND + android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
+
+    private static Pool[] getPools() {
+        return new Pool[] { http, io, cpu, stream };
+    }
+
+    /**
+     * Get the pool of a file operation according to the encoding of its data.
+     * @param encoding Encoding of the data
+     * @return `cpu` for base64 and ascii, otherwise `io`
+     */
+    static Pool forEncoding(String encoding) {
+        if(encoding != null && (encoding.toLowerCase().contains("base64") || encoding.equalsIgnoreCase("ascii")))
+            return cpu;
+        return io;
+    }
+
+    /**
+     * Get a pool by name.
+     * @return The pool, null if there's no such pool.
+     */
+    static Pool get(String name) {
+        for(Pool pool : getPools()) {
+            if(pool.name.equals(name))
+                return pool;
+        }
+        return null;
+    }
+
+    /**
+     * @return Configuration and state of every pool, by name.
+     */
+    static WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        for(Pool pool : getPools()) {
+            stats.putMap(pool.name, pool.getStats());
+        }
+        return stats;
+    }
+
+}
@@ -9,7 +9,6 @@ import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Environment;
 import android.os.StatFs;
-import android.os.SystemClock;
 import android.util.Base64;
 
 import com.RNFetchBlob.Utils.PathResolver;
@@ -28,9 +27,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -229,91 +226,6 @@ public class RNFetchBlobFS {
         return RNFetchBlob.RCTContext.getFilesDir() + "/RNFetchBlobTmp_" + taskId;
     }
 
-    /**
-     * Create a file stream for read
-     * @param path  File stream target path
-     * @param encoding  File stream decoder, should be one of `base64`, `utf8`, `ascii`
-     * @param bufferSize    Buffer size of read stream, default to 4096 (4095 when encode is `base64`)
-     */
-    public void readStream(String path, String encoding, int bufferSize, int tick, final String streamId) {
-        String resolved = normalizePath(path);
-        if(resolved != null)
-            path = resolved;
-        try {
-
-            int chunkSize = encoding.equalsIgnoreCase("base64") ? 4095 : 4096;
-            if(bufferSize > 0)
-                chunkSize = bufferSize;
-
-            InputStream fs;
-
-            if(resolved != null && path.startsWith(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET)) {
-                fs = RNFetchBlob.RCTContext.getAssets().open(path.replace(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET, ""));
-
-            }
-            // fix issue 287
-            else if(resolved == null) {
-                fs = RNFetchBlob.RCTContext.getContentResolver().openInputStream(Uri.parse(path));
-            }
-            else {
-                fs = new FileInputStream(new File(path));
-            }
-
-            byte[] buffer = new byte[chunkSize];
-            int cursor = 0;
-            boolean error = false;
-
-            if (encoding.equalsIgnoreCase("utf8")) {
-                CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
-                while ((cursor = fs.read(buffer)) != -1) {
-                    encoder.encode(ByteBuffer.wrap(buffer).asCharBuffer());
-                    String chunk = new String(buffer, 0, cursor);
-                    emitStreamEvent(streamId, "data", chunk);
-                    if(tick > 0)
-                        SystemClock.sleep(tick);
-                }
-            } else if (encoding.equalsIgnoreCase("ascii")) {
-                while ((cursor = fs.read(buffer)) != -1) {
-                    WritableArray chunk = Arguments.createArray();
-                    for(int i =0;i<cursor;i++)
-                    {
-                        chunk.pushInt((int)buffer[i]);
-                    }
-                    emitStreamEvent(streamId, "data", chunk);
-                    if(tick > 0)
-                        SystemClock.sleep(tick);
-                }
-            } else if (encoding.equalsIgnoreCase("base64")) {
-                while ((cursor = fs.read(buffer)) != -1) {
-                    if(cursor < chunkSize) {
-                        byte [] copy = new byte[cursor];
-                        for(int i =0;i<cursor;i++) {
-                            copy[i] = buffer[i];
-                        }
-                        emitStreamEvent(streamId, "data", Base64.encodeToString(copy, Base64.NO_WRAP));
-                    }
-                    else
-                        emitStreamEvent(streamId, "data", Base64.encodeToString(buffer, Base64.NO_WRAP));
-                    if(tick > 0)
-                        SystemClock.sleep(tick);
-                }
-            } else {
-                String msg = "unrecognized encoding `" + encoding + "`";
-                emitStreamEvent(streamId, "error", msg);
-                error = true;
-            }
-
-            if(!error)
-                emitStreamEvent(streamId, "end", "");
-            fs.close();
-            buffer = null;
-
-        } catch (Exception err) {
-            emitStreamEvent(streamId, "warn", "Failed to convert data to "+encoding+" encoded string, this might due to the source data is not able to convert using this encoding.");
-            err.printStackTrace();
-        }
-    }
-
     /**
      * Create a write stream and store its instance in RNFetchBlobFS.fileStreams
      * @param path  Target file path
@@ -828,26 +740,6 @@ public class RNFetchBlobFS {
         return data.getBytes(Charset.forName("US-ASCII"));
     }
 
-    /**
-     * Private method for emit read stream event.
-     * @param streamName    ID of the read stream
-     * @param event Event name, `data`, `end`, `error`, etc.
-     * @param data  Event data
-     */
-    private void emitStreamEvent(String streamName, String event, String data) {
-        WritableMap eventData = Arguments.createMap();
-        eventData.putString("event", event);
-        eventData.putString("detail", data);
-        this.emitter.emit(streamName, eventData);
-    }
-
-    private void emitStreamEvent(String streamName, String event, WritableArray data) {
-        WritableMap eventData = Arguments.createMap();
-        eventData.putString("event", event);
-        eventData.putArray("detail", data);
-        this.emitter.emit(streamName, eventData);
-    }
-
     // TODO : should we remove this ?
     void emitFSData(String taskId, String event, String data) {
         WritableMap eventData = Arguments.createMap();
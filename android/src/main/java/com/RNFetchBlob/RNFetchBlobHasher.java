@@ -0,0 +1,268 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.Checksum;
+
+import okio.Buffer;
+import okio.ForwardingSink;
+import okio.Sink;
+
+/**
+ * Computes digests of a request or response body while the body is being transferred, so the
+ * content does not have to be read again to check its integrity. Supported algorithms are
+ * `md5`, `sha1`, `sha256` and `crc32c`.
+ */
+public class RNFetchBlobHasher {
+
+    private final ArrayList<String> names = new ArrayList<>();
+    private final ArrayList<MessageDigest> digests = new ArrayList<>();
+    private CRC32C crc32c;
+    // digests are computed once when the body is complete
+    private LinkedHashMap<String, String> results;
+
+    private final OutputStream stream = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            update(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            update(b, off, len);
+        }
+    };
+
+    /**
+     * Create a hasher of given algorithms.
+     * @param algorithms Algorithm names
+     * @return Hasher, null if no algorithm is given.
+     * @throws IllegalArgumentException When an algorithm is not supported
+     */
+    static RNFetchBlobHasher create(List<String> algorithms) {
+        if(algorithms == null || algorithms.isEmpty())
+            return null;
+        RNFetchBlobHasher hasher = new RNFetchBlobHasher();
+        for(String name : algorithms) {
+            name = name.toLowerCase();
+            if(hasher.names.contains(name))
+                continue;
+            if(name.equals("crc32c")) {
+                hasher.crc32c = new CRC32C();
+            }
+            else {
+                try {
+                    hasher.digests.add(MessageDigest.getInstance(getDigestName(name)));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalArgumentException("unsupported hash algorithm " + name);
+                }
+            }
+            hasher.names.add(name);
+        }
+        return hasher;
+    }
+
+    public void update(byte[] bytes, int offset, int length) {
+        for(MessageDigest digest : digests) {
+            digest.update(bytes, offset, length);
+        }
+        if(crc32c != null)
+            crc32c.update(bytes, offset, length);
+    }
+
+    /**
+     * Hash bytes of a buffer without consuming them.
+     * @param buffer Buffer
+     * @param offset Offset of the first byte to hash
+     * @param length Number of bytes to hash
+     * @throws IOException
+     */
+    public void update(Buffer buffer, long offset, long length) throws IOException {
+        buffer.copyTo(stream, offset, length);
+    }
+
+    /**
+     * Hash content which has been written to a file before, e.g. when a download is resumed.
+     * @param path File path
+     * @param length Number of bytes to hash
+     * @throws IOException
+     */
+    void updateFromFile(String path, long length) throws IOException {
+        byte[] buffer = RNFetchBlobBufferPool.acquire();
+        FileInputStream in = new FileInputStream(path);
+        try {
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if(read == -1)
+                    throw new IOException("unexpected end of file " + path);
+                update(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            in.close();
+            RNFetchBlobBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Start over, the body is going to be transferred again.
+     */
+    void reset() {
+        for(MessageDigest digest : digests) {
+            digest.reset();
+        }
+        if(crc32c != null)
+            crc32c.reset();
+        results = null;
+    }
+
+    /**
+     * Wrap a sink so every byte written to it is hashed.
+     * @param delegate The sink to write to
+     * @return Hashing sink
+     */
+    Sink sink(Sink delegate) {
+        return new ForwardingSink(delegate) {
+            @Override
+            public void write(Buffer source, long byteCount) throws IOException {
+                update(source, 0, byteCount);
+                super.write(source, byteCount);
+            }
+        };
+    }
+
+    /**
+     * Get hex encoded digests, the content must be complete.
+     * @return Digests by algorithm name
+     */
+    public synchronized WritableMap getResults() {
+        if(results == null) {
+            results = new LinkedHashMap<>();
+            int i = 0;
+            for(String name : names) {
+                if(name.equals("crc32c"))
+                    results.put(name, String.format("%08x", crc32c.getValue()));
+                else
+                    results.put(name, toHex(digests.get(i++).digest()));
+            }
+        }
+        WritableMap map = Arguments.createMap();
+        for(String name : results.keySet()) {
+            map.putString(name, results.get(name));
+        }
+        return map;
+    }
+
+    /**
+     * Compare digests with expected values.
+     * @param expected Expected hex encoded digests by algorithm name, can be null.
+     * @return Error message when a digest does not match, null otherwise.
+     */
+    public String verify(ReadableMap expected) {
+        if(expected == null)
+            return null;
+        getResults();
+        ReadableMapKeySetIterator it = expected.keySetIterator();
+        while (it.hasNextKey()) {
+            String name = it.nextKey();
+            String actual = results.get(name.toLowerCase());
+            String value = expected.getString(name);
+            if(actual == null || !actual.equalsIgnoreCase(value))
+                return "RNFetchBlob hash mismatch : expected " + name + " " + value + " but got " + actual;
+        }
+        return null;
+    }
+
+    private static String getDigestName(String name) {
+        if(name.equals("md5"))
+            return "MD5";
+        if(name.equals("sha1"))
+            return "SHA-1";
+        if(name.equals("sha256"))
+            return "SHA-256";
+        return name;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for(int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = digits[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = digits[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * CRC-32C (Castagnoli) computed 8 bytes at a time, `java.util.zip.CRC32C` is not available
+     * on older Android versions.
+     */
+    static class CRC32C implements Checksum {
+
+        private static final int[][] TABLES = new int[8][256];
+
+        static {
+            for(int n = 0; n < 256; n++) {
+                int crc = n;
+                for(int k = 0; k < 8; k++) {
+                    crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+                }
+                TABLES[0][n] = crc;
+            }
+            for(int n = 0; n < 256; n++) {
+                for(int t = 1; t < 8; t++) {
+                    int prev = TABLES[t - 1][n];
+                    TABLES[t][n] = (prev >>> 8) ^ TABLES[0][prev & 0xff];
+                }
+            }
+        }
+
+        private int crc = 0xffffffff;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xff];
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+            int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+            int c = crc;
+            while (len >= 8) {
+                c ^= (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+                c = t7[c & 0xff] ^ t6[(c >>> 8) & 0xff] ^ t5[(c >>> 16) & 0xff] ^ t4[c >>> 24]
+                        ^ t3[b[off + 4] & 0xff] ^ t2[b[off + 5] & 0xff] ^ t1[b[off + 6] & 0xff] ^ t0[b[off + 7] & 0xff];
+                off += 8;
+                len -= 8;
+            }
+            while (len-- > 0) {
+                c = (c >>> 8) ^ t0[(c ^ b[off++]) & 0xff];
+            }
+            crc = c;
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc & 0xffffffffL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xffffffff;
+        }
+    }
+
+}
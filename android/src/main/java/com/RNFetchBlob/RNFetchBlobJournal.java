@@ -0,0 +1,148 @@
+package com.RNFetchBlob;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * On-disk checkpoint journal of resumable downloads. Every entry records the URL, destination,
+ * validators (ETag / Last-Modified) and the number of bytes which have been written to the
+ * destination, so an interrupted download can continue from where it stopped.
+ */
+public class RNFetchBlobJournal {
+
+    public static class Entry {
+        public String url;
+        public String dest;
+        public String etag;
+        public String lastModified;
+        public long offset = 0;
+        long lastCheckpoint = 0;
+
+        Entry(String url, String dest) {
+            this.url = url;
+            this.dest = dest;
+        }
+
+        /**
+         * Get the validator for If-Range header, strong ETag is preferred.
+         * @return Validator string, null if the response has no validator.
+         */
+        public String getValidator() {
+            if(etag != null && !etag.startsWith("W/"))
+                return etag;
+            return lastModified;
+        }
+
+        /**
+         * Persist the offset when enough bytes have been written since last checkpoint.
+         * @param offset Number of bytes written to destination.
+         */
+        public void checkpoint(long offset) {
+            this.offset = offset;
+            if(offset - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+                lastCheckpoint = offset;
+                save(this);
+            }
+        }
+    }
+
+    private static final long CHECKPOINT_INTERVAL = 1024 * 1024;
+    private static final Object lock = new Object();
+
+    /**
+     * Find the journal entry of a download.
+     * @param url URL of the download
+     * @param dest Destination path
+     * @return Journal entry, null if the download has no checkpoint.
+     */
+    public static Entry load(String url, String dest) {
+        File file = getEntryFile(url, dest);
+        synchronized (lock) {
+            if(!file.exists())
+                return null;
+            try {
+                byte[] bytes = new byte[(int) file.length()];
+                FileInputStream in = new FileInputStream(file);
+                try {
+                    int read = 0;
+                    while (read < bytes.length) {
+                        int n = in.read(bytes, read, bytes.length - read);
+                        if(n < 0)
+                            break;
+                        read += n;
+                    }
+                } finally {
+                    in.close();
+                }
+                JSONObject json = new JSONObject(new String(bytes, "UTF-8"));
+                Entry entry = new Entry(url, dest);
+                entry.etag = json.optString("etag", null);
+                entry.lastModified = json.optString("lastModified", null);
+                entry.offset = json.optLong("offset", 0);
+                entry.lastCheckpoint = entry.offset;
+                // the entry belongs to another download which has the same file name
+                if(!url.equals(json.optString("url")) || !dest.equals(json.optString("dest")))
+                    return null;
+                return entry;
+            } catch (Exception ex) {
+                file.delete();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Create or update journal entry
+     * @param entry The entry to write
+     */
+    public static void save(Entry entry) {
+        File file = getEntryFile(entry.url, entry.dest);
+        synchronized (lock) {
+            try {
+                JSONObject json = new JSONObject();
+                json.put("url", entry.url);
+                json.put("dest", entry.dest);
+                json.put("etag", entry.etag);
+                json.put("lastModified", entry.lastModified);
+                json.put("offset", entry.offset);
+                File dir = file.getParentFile();
+                if(!dir.exists())
+                    dir.mkdirs();
+                // write to a temp file first so a crash never leaves a broken entry
+                File tmp = new File(file.getPath() + ".tmp");
+                FileOutputStream os = new FileOutputStream(tmp);
+                try {
+                    os.write(json.toString().getBytes("UTF-8"));
+                } finally {
+                    os.close();
+                }
+                if(!tmp.renameTo(file))
+                    throw new IOException("failed to rename " + tmp);
+            } catch (Exception ex) {
+                RNFetchBlobUtils.emitWarningEvent("RNFetchBlob failed to write download journal : " + ex.getLocalizedMessage());
+            }
+        }
+    }
+
+    /**
+     * Remove journal entry, should be invoked when the download is completed.
+     * @param url URL of the download
+     * @param dest Destination path
+     */
+    public static void remove(String url, String dest) {
+        File file = getEntryFile(url, dest);
+        synchronized (lock) {
+            if(file.exists())
+                file.delete();
+        }
+    }
+
+    private static File getEntryFile(String url, String dest) {
+        return new File(RNFetchBlob.RCTContext.getFilesDir(), "RNFetchBlobJournal/" + RNFetchBlobUtils.getMD5(url + "|" + dest));
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Global budget of response bodies which are kept in memory. The scheduler admits a task whose
+ * response is kept in memory only while the budget has room, and the task holds a small
+ * reservation from then on, so tasks wait in the scheduler queue without a connection or a
+ * thread while the budget is used up. When the body arrives its reservation is grown to the size
+ * of the body without waiting. A response which is larger than the per-response threshold, or
+ * which doesn't fit the budget, is written to a temp file instead, so large responses never
+ * exhaust the heap.
+ */
+public class RNFetchBlobMemoryBudget {
+
+    // memory reserved by a task when it's admitted
+    static final long ADMISSION_BYTES = 8192;
+
+    private static long budget = Runtime.getRuntime().maxMemory() / 4;
+    private static long threshold = Runtime.getRuntime().maxMemory() / 8;
+    private static long used = 0;
+    private static long spills = 0;
+    private static final Object lock = new Object();
+
+    /**
+     * Change the budget and the default per-response threshold.
+     * @param maxBytes Max number of bytes of all in-memory responses, zero or negative value keeps
+     *                 current value.
+     * @param maxResponseBytes Max size of a single in-memory response, zero or negative value
+     *                         keeps current value.
+     */
+    static void configure(long maxBytes, long maxResponseBytes) {
+        synchronized (lock) {
+            if(maxBytes > 0)
+                budget = maxBytes;
+            if(maxResponseBytes > 0)
+                threshold = maxResponseBytes;
+        }
+        RNFetchBlobScheduler.onMemoryReleased();
+    }
+
+    static long getThreshold() {
+        synchronized (lock) {
+            return threshold;
+        }
+    }
+
+    /**
+     * Check if a task can be admitted by the scheduler.
+     * @param task HTTP task
+     * @return False if the response of the task is kept in memory and the budget is used up.
+     */
+    static boolean canAdmit(RNFetchBlobReq task) {
+        if(task.responseType != RNFetchBlobReq.ResponseType.KeepInMemory || task.memoryReserved > 0)
+            return true;
+        synchronized (lock) {
+            // a budget smaller than a reservation still admits one task at a time
+            return used == 0 || used + ADMISSION_BYTES <= budget;
+        }
+    }
+
+    /**
+     * Reserve memory for a task which has been admitted, the reservation is held by the task
+     * until its response body takes it over or the task is released.
+     * @param task HTTP task
+     */
+    static void admit(RNFetchBlobReq task) {
+        if(task.responseType != RNFetchBlobReq.ResponseType.KeepInMemory || task.memoryReserved > 0)
+            return;
+        synchronized (lock) {
+            used += ADMISSION_BYTES;
+        }
+        task.memoryReserved = ADMISSION_BYTES;
+    }
+
+    /**
+     * Reserve more memory for a response body, this never waits since the task holds a
+     * reservation already.
+     * @param bytes Number of bytes to reserve
+     * @return False if there's not enough budget.
+     */
+    static boolean tryAcquire(long bytes) {
+        synchronized (lock) {
+            if(used + bytes > budget)
+                return false;
+            used += bytes;
+            return true;
+        }
+    }
+
+    static void release(long bytes) {
+        if(bytes <= 0)
+            return;
+        synchronized (lock) {
+            used -= bytes;
+        }
+        RNFetchBlobScheduler.onMemoryReleased();
+    }
+
+    static void onSpill() {
+        synchronized (lock) {
+            spills++;
+        }
+    }
+
+    static WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        synchronized (lock) {
+            stats.putDouble("maxBytes", budget);
+            stats.putDouble("maxResponseBytes", threshold);
+            stats.putDouble("used", used);
+            stats.putDouble("spills", spills);
+        }
+        stats.putInt("waiting", RNFetchBlobScheduler.getMemoryWaiting());
+        return stats;
+    }
+
+}
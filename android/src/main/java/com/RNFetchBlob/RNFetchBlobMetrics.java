@@ -0,0 +1,218 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics of the whole module. Counters which are updated by transfer loops are striped by
+ * thread, so threads updating the same counter don't contend on a single value, and latencies
+ * are recorded in histograms of fixed buckets. A snapshot also contains the state of executors,
+ * streams, cache, buffer pool, memory budget and connection pool, it's read by `getMetrics`.
+ */
+public class RNFetchBlobMetrics {
+
+    // number of stripes, must be a power of 2
+    private static final int STRIPES = 8;
+    // a cell of each stripe takes a cache line of 64 bytes
+    private static final int PADDING = 8;
+    // upper bounds of latency buckets in milliseconds, the last bucket has no bound
+    private static final long[] LATENCY_BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+
+    /**
+     * A counter whose value is spread across stripes.
+     */
+    static class Counter {
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        void increment() {
+            add(1);
+        }
+
+        void add(long n) {
+            int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+            cells.getAndAdd(stripe * PADDING, n);
+        }
+
+        long get(boolean reset) {
+            long sum = 0;
+            for(int i = 0; i < STRIPES; i++) {
+                sum += reset ? cells.getAndSet(i * PADDING, 0) : cells.get(i * PADDING);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * A histogram of fixed buckets, percentiles are estimated by the upper bound of the bucket
+     * they fall in.
+     */
+    static class Histogram {
+        private final long[] bounds;
+        private final Counter[] buckets;
+        private final Counter sum = new Counter();
+
+        Histogram(long[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new Counter[bounds.length + 1];
+            for(int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Counter();
+            }
+        }
+
+        void record(long value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(value);
+        }
+
+        WritableMap toMap(boolean reset) {
+            long[] counts = new long[buckets.length];
+            long count = 0;
+            for(int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].get(reset);
+                count += counts[i];
+            }
+            long total = sum.get(reset);
+            WritableMap map = Arguments.createMap();
+            map.putDouble("count", count);
+            map.putDouble("sum", total);
+            map.putDouble("mean", count > 0 ? (double) total / count : 0);
+            map.putDouble("p50", getPercentile(counts, count, 0.5));
+            map.putDouble("p90", getPercentile(counts, count, 0.9));
+            map.putDouble("p99", getPercentile(counts, count, 0.99));
+            WritableArray list = Arguments.createArray();
+            for(int i = 0; i < buckets.length; i++) {
+                WritableMap bucket = Arguments.createMap();
+                // the last bucket is reported with a bound of -1
+                bucket.putDouble("le", i < bounds.length ? bounds[i] : -1);
+                bucket.putDouble("count", counts[i]);
+                list.pushMap(bucket);
+            }
+            map.putArray("buckets", list);
+            return map;
+        }
+
+        private double getPercentile(long[] counts, long count, double percentile) {
+            if(count == 0)
+                return 0;
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if(seen >= rank)
+                    return i < bounds.length ? bounds[i] : bounds[bounds.length - 1];
+            }
+            return bounds[bounds.length - 1];
+        }
+    }
+
+    static final Counter bytesIn = new Counter();
+    static final Counter bytesOut = new Counter();
+    static final Counter tasksSubmitted = new Counter();
+    static final Counter tasksDone = new Counter();
+    static final Counter tasksFailed = new Counter();
+    static final Counter tasksCancelled = new Counter();
+    static final Counter rejected = new Counter();
+    static final Counter buffersAcquired = new Counter();
+    static final Counter buffersAllocated = new Counter();
+    // from submission of a task to its outcome, and from start of a task to response headers
+    static final Histogram latency = new Histogram(LATENCY_BOUNDS);
+    static final Histogram timeToFirstByte = new Histogram(LATENCY_BOUNDS);
+
+    private static volatile long since = System.currentTimeMillis();
+
+    /**
+     * Count bytes received by a transfer loop.
+     * @param bytes Number of bytes
+     */
+    public static void onBytesIn(long bytes) {
+        if(bytes > 0)
+            bytesIn.add(bytes);
+    }
+
+    /**
+     * Count bytes of request bodies which have been sent.
+     * @param bytes Number of bytes
+     */
+    public static void onBytesOut(long bytes) {
+        if(bytes > 0)
+            bytesOut.add(bytes);
+    }
+
+    /**
+     * Record the outcome of a task.
+     * @param state Done, Failed or Cancelled
+     * @param queuedAt Time when the task was submitted
+     */
+    static void onTaskFinished(RNFetchBlobTaskRegistry.State state, long queuedAt) {
+        switch (state) {
+            case Done:
+                tasksDone.increment();
+                break;
+            case Failed:
+                tasksFailed.increment();
+                break;
+            case Cancelled:
+                tasksCancelled.increment();
+                break;
+        }
+        latency.record(System.currentTimeMillis() - queuedAt);
+    }
+
+    /**
+     * Take a snapshot of all metrics.
+     * @param reset If counters and histograms start over after the snapshot, gauges are not
+     *              affected.
+     * @return Snapshot of metrics
+     */
+    static WritableMap getMetrics(boolean reset) {
+        WritableMap metrics = Arguments.createMap();
+        long now = System.currentTimeMillis();
+        metrics.putDouble("since", since);
+        metrics.putDouble("timestamp", now);
+        metrics.putDouble("bytesIn", bytesIn.get(reset));
+        metrics.putDouble("bytesOut", bytesOut.get(reset));
+
+        WritableMap tasks = Arguments.createMap();
+        tasks.putDouble("submitted", tasksSubmitted.get(reset));
+        tasks.putDouble("done", tasksDone.get(reset));
+        tasks.putDouble("failed", tasksFailed.get(reset));
+        tasks.putDouble("cancelled", tasksCancelled.get(reset));
+        tasks.putInt("active", RNFetchBlobTaskRegistry.size());
+        tasks.putDouble("rejected", rejected.get(reset));
+        metrics.putMap("tasks", tasks);
+        metrics.putMap("scheduler", RNFetchBlobScheduler.getQueueDepth());
+        metrics.putMap("latency", latency.toMap(reset));
+        metrics.putMap("timeToFirstByte", timeToFirstByte.toMap(reset));
+
+        metrics.putMap("executors", RNFetchBlobExecutors.getStats());
+
+        WritableMap streams = Arguments.createMap();
+        streams.putInt("write", RNFetchBlobFS.fileStreams.size());
+        streams.putInt("read", RNFetchBlobReadStream.getCount());
+        metrics.putMap("streams", streams);
+
+        WritableMap buffers = Arguments.createMap();
+        long acquired = buffersAcquired.get(reset);
+        long allocated = buffersAllocated.get(reset);
+        buffers.putDouble("acquired", acquired);
+        buffers.putDouble("allocated", allocated);
+        buffers.putDouble("hitRate", acquired > 0 ? (double) (acquired - allocated) / acquired : 0);
+        buffers.putInt("pooled", RNFetchBlobBufferPool.getPooledCount());
+        metrics.putMap("bufferPool", buffers);
+
+        metrics.putMap("cache", RNFetchBlobCache.getStats());
+        metrics.putMap("memory", RNFetchBlobMemoryBudget.getStats());
+        metrics.putMap("connections", RNFetchBlobConnectionPool.getStats());
+        if(reset)
+            since = now;
+        return metrics;
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects upload and download progress of all tasks and reports them with one event per frame.
+ * I/O threads only store the latest byte count of a task, a single timer thread applies the
+ * `interval` and `count` config of each task and emits one batched event which contains every
+ * task that has made progress since last frame.
+ */
+public class RNFetchBlobProgressAggregator {
+
+    static class Progress {
+        final String taskId;
+        final boolean upload;
+        final RNFetchBlobProgressConfig config;
+        final AtomicLong written = new AtomicLong(0);
+        volatile long total = -1;
+        // guarded by the object itself
+        long reported = -1;
+
+        Progress(String taskId, boolean upload, RNFetchBlobProgressConfig config) {
+            this.taskId = taskId;
+            this.upload = upload;
+            this.config = config;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Progress> downloads = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Progress> uploads = new ConcurrentHashMap<>();
+
+    private static final Object lock = new Object();
+    private static ScheduledExecutorService timer;
+    private static ScheduledFuture<?> flushTask;
+    private static long frameInterval = 1000 / 30;
+
+    /**
+     * Record progress of a task, it's reported on next frame. This does nothing when progress
+     * report of the task is not enabled.
+     * @param taskId Task ID
+     * @param written Number of bytes sent or received
+     * @param total Content length, -1 if it's unknown.
+     * @param upload True for upload progress
+     */
+    public static void update(String taskId, long written, long total, boolean upload) {
+        ConcurrentHashMap<String, Progress> tasks = upload ? uploads : downloads;
+        Progress progress = tasks.get(taskId);
+        if(progress == null) {
+            RNFetchBlobProgressConfig config = upload
+                    ? RNFetchBlobReq.getReportUploadProgress(taskId)
+                    : RNFetchBlobReq.getReportProgress(taskId);
+            if(config == null)
+                return;
+            Progress created = new Progress(taskId, upload, config);
+            progress = tasks.putIfAbsent(taskId, created);
+            if(progress == null) {
+                progress = created;
+                start();
+            }
+        }
+        progress.total = total;
+        progress.written.set(written);
+    }
+
+    /**
+     * Stop reporting progress of a task. Progress which has been recorded since last frame, like
+     * the last chunk of a response, is emitted immediately, so it arrives before the outcome of
+     * the task.
+     * @param taskId Task ID
+     */
+    static void remove(String taskId) {
+        WritableArray items = Arguments.createArray();
+        int count = collectPending(downloads.remove(taskId), items) + collectPending(uploads.remove(taskId), items);
+        if(count > 0)
+            emit(items);
+    }
+
+    private static int collectPending(Progress progress, WritableArray items) {
+        if(progress == null)
+            return 0;
+        synchronized (progress) {
+            long written = progress.written.get();
+            if(written == progress.reported || progress.total == 0)
+                return 0;
+            items.pushMap(report(progress, written));
+            return 1;
+        }
+    }
+
+    /**
+     * Change how many progress events are emitted per second.
+     * @param fps Number of frames per second
+     */
+    static void setFrameRate(int fps) {
+        if(fps <= 0)
+            return;
+        synchronized (lock) {
+            frameInterval = Math.max(1000 / fps, 1);
+            if(flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+        }
+        if(!downloads.isEmpty() || !uploads.isEmpty())
+            start();
+    }
+
+    private static void start() {
+        synchronized (lock) {
+            if(flushTask != null)
+                return;
+            if(timer == null) {
+                timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "RNFetchBlobProgress");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            flushTask = timer.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, frameInterval, frameInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void flush() {
+        WritableArray items = Arguments.createArray();
+        int count = collect(downloads, items) + collect(uploads, items);
+        if(count > 0)
+            emit(items);
+        // stop the timer when there's nothing to report, it's started again by next update
+        synchronized (lock) {
+            if(downloads.isEmpty() && uploads.isEmpty() && flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+        }
+    }
+
+    private static int collect(ConcurrentHashMap<String, Progress> tasks, WritableArray items) {
+        int count = 0;
+        for(Progress progress : tasks.values()) {
+            synchronized (progress) {
+                long written = progress.written.get();
+                if(written == progress.reported)
+                    continue;
+                long total = progress.total;
+                if(total == 0)
+                    continue;
+                if(!progress.config.shouldReport(total > 0 ? (float) written / total : -1))
+                    continue;
+                items.pushMap(report(progress, written));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static WritableMap report(Progress progress, long written) {
+        progress.reported = written;
+        WritableMap item = Arguments.createMap();
+        item.putString("taskId", progress.taskId);
+        item.putString("written", String.valueOf(written));
+        item.putString("total", String.valueOf(progress.total));
+        item.putBoolean("upload", progress.upload);
+        return item;
+    }
+
+    private static void emit(WritableArray items) {
+        WritableMap args = Arguments.createMap();
+        args.putArray("items", items);
+        RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(RNFetchBlobConst.EVENT_PROGRESS_BATCH, args);
+    }
+
+}
@@ -0,0 +1,293 @@
+package com.RNFetchBlob;
+
+import android.net.Uri;
+import android.util.Base64;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A file read stream with credit based flow control. Every `data` event takes a credit, and JS
+ * grants a credit back when it has consumed a chunk, so the number of chunks queued in JS never
+ * exceeds the initial credits. A stream without credits does not hold a thread, it's scheduled
+ * on the stream executor again when credits are granted or the stream is resumed.
+ */
+public class RNFetchBlobReadStream implements Runnable {
+
+    // max number of chunks emitted in a single run, so streams with many credits take turns
+    private static final int MAX_CHUNKS_PER_RUN = 16;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final ConcurrentHashMap<String, RNFetchBlobReadStream> streams = new ConcurrentHashMap<>();
+
+    private final String streamId;
+    private final String path;
+    private final String encoding;
+    private final int chunkSize;
+    private InputStream in;
+    private byte[] buffer;
+    // bytes of an incomplete UTF-8 sequence at the end of last chunk
+    private int carry = 0;
+
+    // number of chunks which can be emitted, negative value means no limit
+    private int credits;
+    private boolean paused = false;
+    private boolean closed = false;
+    // if the stream is queued or running on the executor
+    private boolean scheduled = false;
+
+    private RNFetchBlobReadStream(String streamId, String path, String encoding, int chunkSize, int credits) {
+        this.streamId = streamId;
+        this.path = path;
+        this.encoding = encoding;
+        this.chunkSize = chunkSize;
+        this.credits = credits;
+    }
+
+    /**
+     * Open a read stream, the file is opened on the stream executor.
+     * @param path Path of the file
+     * @param encoding Stream encoding, should be one of `base64`, `ascii`, and `utf8`
+     * @param bufferSize Size of a chunk, default to 4096 or 4095(base64).
+     * @param credits Number of chunks emitted before JS grants more, zero or negative value
+     *                disables flow control.
+     * @param streamId Stream ID, also the name of stream events.
+     */
+    static void open(String path, String encoding, int bufferSize, int credits, String streamId) {
+        int chunkSize = encoding.equalsIgnoreCase("base64") ? 4095 : 4096;
+        if(bufferSize > 0)
+            chunkSize = bufferSize;
+        // a utf8 chunk must be able to hold the longest character, which may be carried over
+        if(encoding.equalsIgnoreCase("utf8"))
+            chunkSize = Math.max(chunkSize, 4);
+        RNFetchBlobReadStream stream = new RNFetchBlobReadStream(streamId, path, encoding, chunkSize, credits > 0 ? credits : -1);
+        streams.put(streamId, stream);
+        stream.schedule();
+    }
+
+    /**
+     * Allow a stream to emit more chunks.
+     * @param streamId Stream ID
+     * @param count Number of chunks
+     */
+    static void grant(String streamId, int count) {
+        RNFetchBlobReadStream stream = streams.get(streamId);
+        if(stream == null || count <= 0)
+            return;
+        synchronized (stream) {
+            if(stream.credits >= 0)
+                stream.credits += count;
+        }
+        stream.schedule();
+    }
+
+    static void pause(String streamId) {
+        RNFetchBlobReadStream stream = streams.get(streamId);
+        if(stream == null)
+            return;
+        synchronized (stream) {
+            stream.paused = true;
+        }
+    }
+
+    static void resume(String streamId) {
+        RNFetchBlobReadStream stream = streams.get(streamId);
+        if(stream == null)
+            return;
+        synchronized (stream) {
+            stream.paused = false;
+        }
+        stream.schedule();
+    }
+
+    /**
+     * Stop a stream, no more event is emitted and the file is closed by the executor.
+     * @param streamId Stream ID
+     */
+    static void close(String streamId) {
+        RNFetchBlobReadStream stream = streams.get(streamId);
+        if(stream == null)
+            return;
+        synchronized (stream) {
+            stream.closed = true;
+        }
+        stream.schedule();
+    }
+
+    /**
+     * @return Number of read streams which are open.
+     */
+    static int getCount() {
+        return streams.size();
+    }
+
+    private synchronized boolean canEmit() {
+        return !paused && credits != 0;
+    }
+
+    private void schedule() {
+        synchronized (this) {
+            if(scheduled || (!closed && !canEmit()))
+                return;
+            scheduled = true;
+        }
+        if(!RNFetchBlobExecutors.stream.execute(this)) {
+            emit("error", RNFetchBlobExecutors.stream.getRejectedMessage());
+            finish();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            if(in == null) {
+                if(!encoding.equalsIgnoreCase("utf8") && !encoding.equalsIgnoreCase("ascii") && !encoding.equalsIgnoreCase("base64")) {
+                    emit("error", "unrecognized encoding `" + encoding + "`");
+                    finish();
+                    return;
+                }
+                in = openInputStream();
+                buffer = new byte[chunkSize];
+            }
+            for(int i = 0; i < MAX_CHUNKS_PER_RUN; i++) {
+                synchronized (this) {
+                    if(closed) {
+                        finish();
+                        return;
+                    }
+                    if(!canEmit()) {
+                        scheduled = false;
+                        return;
+                    }
+                    if(credits > 0)
+                        credits--;
+                }
+                if(!emitChunk()) {
+                    emit("end", "");
+                    finish();
+                    return;
+                }
+            }
+        } catch (Exception err) {
+            emit("error", "Failed to read stream of `" + path + "` : " + err.getLocalizedMessage());
+            finish();
+            return;
+        }
+        synchronized (this) {
+            scheduled = false;
+        }
+        schedule();
+    }
+
+    private InputStream openInputStream() throws IOException {
+        String resolved = RNFetchBlobFS.normalizePath(path);
+        if(resolved != null && resolved.startsWith(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET))
+            return RNFetchBlob.RCTContext.getAssets().open(resolved.replace(RNFetchBlobConst.FILE_PREFIX_BUNDLE_ASSET, ""));
+        // fix issue 287
+        if(resolved == null)
+            return RNFetchBlob.RCTContext.getContentResolver().openInputStream(Uri.parse(path));
+        return new FileInputStream(new File(resolved));
+    }
+
+    /**
+     * Read a chunk and emit it as a `data` event.
+     * @return False if the end of file has been reached.
+     * @throws IOException
+     */
+    private boolean emitChunk() throws IOException {
+        if(encoding.equalsIgnoreCase("utf8")) {
+            int read = in.read(buffer, carry, buffer.length - carry);
+            if(read == -1) {
+                // a truncated sequence at the end of file
+                if(carry > 0)
+                    emit("data", new String(buffer, 0, carry, UTF8));
+                return false;
+            }
+            // no progress, nothing is emitted and the credit is given back
+            if(read == 0) {
+                synchronized (this) {
+                    if(credits >= 0)
+                        credits++;
+                }
+                return true;
+            }
+            int length = carry + read;
+            int complete = getCompleteUtf8Length(buffer, length);
+            emit("data", new String(buffer, 0, complete, UTF8));
+            // a character split by the chunk is emitted with next chunk
+            carry = length - complete;
+            System.arraycopy(buffer, complete, buffer, 0, carry);
+            return true;
+        }
+        int read = in.read(buffer);
+        if(read == -1)
+            return false;
+        if(encoding.equalsIgnoreCase("ascii")) {
+            WritableArray chunk = Arguments.createArray();
+            for(int i = 0; i < read; i++) {
+                chunk.pushInt((int) buffer[i]);
+            }
+            WritableMap eventData = Arguments.createMap();
+            eventData.putString("event", "data");
+            eventData.putArray("detail", chunk);
+            emit(eventData);
+        }
+        else {
+            emit("data", Base64.encodeToString(buffer, 0, read, Base64.NO_WRAP));
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of bytes at the beginning of a chunk which form complete UTF-8 sequences.
+     */
+    private static int getCompleteUtf8Length(byte[] bytes, int length) {
+        for(int i = length - 1; i >= 0 && i >= length - 4; i--) {
+            int b = bytes[i] & 0xff;
+            if((b & 0xC0) == 0x80)
+                continue;
+            int size = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+            return length - i >= size ? length : i;
+        }
+        return length;
+    }
+
+    private void finish() {
+        streams.remove(streamId, this);
+        synchronized (this) {
+            closed = true;
+        }
+        buffer = null;
+        if(in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void emit(String event, String detail) {
+        WritableMap eventData = Arguments.createMap();
+        eventData.putString("event", event);
+        eventData.putString("detail", detail);
+        emit(eventData);
+    }
+
+    private void emit(WritableMap eventData) {
+        // a closed stream is silent, its listener has been removed
+        if(!streams.containsKey(streamId))
+            return;
+        RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(streamId, eventData);
+    }
+
+}
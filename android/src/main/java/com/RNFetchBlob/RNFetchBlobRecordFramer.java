@@ -0,0 +1,295 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Splits a response body into records while it's being received, set by `framing` option.
+ * Supported framings are `lines` (newline delimited, e.g. NDJSON), `sse` (server-sent events)
+ * and `length` (every record is prefixed by its length as a 4-byte big-endian integer). Partial
+ * records are kept until the rest arrives, complete records are emitted in batches, at most
+ * one event per `framingInterval` milliseconds.
+ */
+public class RNFetchBlobRecordFramer {
+
+    enum Framing {
+        Lines,
+        SSE,
+        Length
+    }
+
+    private static final long DEFAULT_INTERVAL = 50;
+    private static final long MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final ByteString NEWLINE = ByteString.encodeUtf8("\n");
+
+    private static ScheduledExecutorService timer;
+
+    private final String taskId;
+    private final Framing framing;
+    private final boolean base64;
+    private final long interval;
+    // bytes which have not formed a complete record yet
+    private final Buffer pending = new Buffer();
+    private WritableArray records;
+    private int recordCount = 0;
+    // if a record has been framed, it's emitted even when the body fails later
+    private boolean delivered = false;
+    private ScheduledFuture<?> flushTask;
+    // fields of the server-sent event being received
+    private StringBuilder eventData;
+    private String eventType;
+    private String lastEventId;
+
+    private RNFetchBlobRecordFramer(String taskId, Framing framing, boolean base64, long interval) {
+        this.taskId = taskId;
+        this.framing = framing;
+        this.base64 = base64;
+        this.interval = interval;
+    }
+
+    /**
+     * Create a framer of given framing.
+     * @param taskId Task ID
+     * @param framing `lines`, `sse` or `length`
+     * @param base64 If records of `length` framing are sent as BASE64 strings instead of UTF-8.
+     * @param interval Min time in milliseconds between two events, negative value uses default.
+     * @return Framer, null when framing is not set.
+     * @throws IllegalArgumentException When framing is not supported
+     */
+    static RNFetchBlobRecordFramer create(String taskId, String framing, boolean base64, long interval) {
+        if(framing == null)
+            return null;
+        Framing type;
+        if(framing.equalsIgnoreCase("lines") || framing.equalsIgnoreCase("ndjson"))
+            type = Framing.Lines;
+        else if(framing.equalsIgnoreCase("sse"))
+            type = Framing.SSE;
+        else if(framing.equalsIgnoreCase("length"))
+            type = Framing.Length;
+        else
+            throw new IllegalArgumentException("unsupported framing " + framing);
+        return new RNFetchBlobRecordFramer(taskId, type, base64, interval < 0 ? DEFAULT_INTERVAL : interval);
+    }
+
+    /**
+     * Take bytes which have just been received, the buffer is not consumed.
+     * @param source Buffer which contains the bytes
+     * @param offset Offset of the first byte
+     * @param count Number of bytes
+     * @throws IOException When a length prefixed record is too large
+     */
+    public synchronized void write(Buffer source, long offset, long count) throws IOException {
+        source.copyTo(pending, offset, count);
+        switch (framing) {
+            case Lines:
+                readLines();
+                break;
+            case SSE:
+                readEvents();
+                break;
+            case Length:
+                readLengthPrefixed();
+                break;
+        }
+        if(pending.size() > MAX_RECORD_SIZE)
+            throw new IOException("record exceeds max record size of " + MAX_RECORD_SIZE + " bytes");
+        if(recordCount > 0)
+            scheduleFlush();
+    }
+
+    /**
+     * The body has been completely received, a last line without line break is a record, while
+     * an incomplete event or length prefixed record is dropped. Remaining records are emitted
+     * immediately.
+     */
+    public synchronized void finish() {
+        if(framing == Framing.Lines && pending.size() > 0)
+            addLine(pending.readUtf8());
+        pending.clear();
+        flush();
+    }
+
+    private void readLines() throws IOException {
+        long index;
+        while ((index = pending.indexOf(NEWLINE)) != -1) {
+            String line = pending.readUtf8(index);
+            pending.skip(1);
+            addLine(line);
+        }
+    }
+
+    private void addLine(String line) {
+        if(line.endsWith("\r"))
+            line = line.substring(0, line.length() - 1);
+        // blank lines are not records
+        if(line.trim().isEmpty())
+            return;
+        getRecords().pushString(line);
+        recordCount++;
+    }
+
+    /**
+     * Parse server-sent events, an event is dispatched by a blank line.
+     * @see <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">Server-sent events</a>
+     */
+    private void readEvents() throws IOException {
+        long index;
+        while ((index = pending.indexOf(NEWLINE)) != -1) {
+            String line = pending.readUtf8(index);
+            pending.skip(1);
+            if(line.endsWith("\r"))
+                line = line.substring(0, line.length() - 1);
+            if(line.isEmpty()) {
+                dispatchEvent();
+                continue;
+            }
+            // comment
+            if(line.startsWith(":"))
+                continue;
+            int colon = line.indexOf(':');
+            String field = colon == -1 ? line : line.substring(0, colon);
+            String value = colon == -1 ? "" : line.substring(colon + 1);
+            if(value.startsWith(" "))
+                value = value.substring(1);
+            if(field.equals("data")) {
+                if(eventData == null)
+                    eventData = new StringBuilder();
+                eventData.append(value).append('\n');
+            }
+            else if(field.equals("event"))
+                eventType = value;
+            else if(field.equals("id"))
+                lastEventId = value;
+        }
+    }
+
+    private void dispatchEvent() {
+        if(eventData != null) {
+            WritableMap event = Arguments.createMap();
+            event.putString("event", eventType == null ? "message" : eventType);
+            // the last line break is not part of data
+            event.putString("data", eventData.substring(0, eventData.length() - 1));
+            event.putString("id", lastEventId);
+            getRecords().pushMap(event);
+            recordCount++;
+        }
+        eventData = null;
+        eventType = null;
+    }
+
+    private void readLengthPrefixed() throws IOException {
+        while (pending.size() >= 4) {
+            long length = pending.getByte(0) & 0xffL;
+            for(int i = 1; i < 4; i++) {
+                length = length << 8 | (pending.getByte(i) & 0xff);
+            }
+            if(length > MAX_RECORD_SIZE)
+                throw new IOException("record of " + length + " bytes exceeds max record size");
+            if(pending.size() < 4 + length)
+                return;
+            pending.skip(4);
+            if(base64)
+                getRecords().pushString(pending.readByteString(length).base64());
+            else
+                getRecords().pushString(pending.readUtf8(length));
+            recordCount++;
+        }
+    }
+
+    /**
+     * @return True if a record has been framed, records can't be taken back once they're emitted.
+     */
+    public synchronized boolean hasDelivered() {
+        return delivered;
+    }
+
+    private WritableArray getRecords() {
+        delivered = true;
+        if(records == null)
+            records = Arguments.createArray();
+        return records;
+    }
+
+    private void scheduleFlush() {
+        if(flushTask != null)
+            return;
+        if(interval == 0) {
+            flush();
+            return;
+        }
+        flushTask = getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (RNFetchBlobRecordFramer.this) {
+                    flushTask = null;
+                    flush();
+                }
+            }
+        }, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Emit the records which have been collected since last event.
+     */
+    private void flush() {
+        if(flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        if(recordCount == 0)
+            return;
+        WritableMap args = Arguments.createMap();
+        args.putString("taskId", taskId);
+        args.putArray("records", records);
+        records = null;
+        recordCount = 0;
+        RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(RNFetchBlobConst.EVENT_RECORDS, args);
+    }
+
+    /**
+     * Get the number of bytes at the beginning of a buffer which form complete UTF-8 sequences,
+     * so a chunk of text is never split inside a character.
+     * @param buffer Buffer of UTF-8 text
+     * @return Number of bytes
+     */
+    public static long getCompleteUtf8Size(Buffer buffer) {
+        long size = buffer.size();
+        // look for the lead byte of the last sequence
+        for(long i = size - 1; i >= 0 && i >= size - 4; i--) {
+            int b = buffer.getByte(i) & 0xff;
+            if((b & 0xC0) == 0x80)
+                continue;
+            int length = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+            return size - i >= length ? size : i;
+        }
+        return size;
+    }
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if(timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RNFetchBlobRecords");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return timer;
+    }
+
+}
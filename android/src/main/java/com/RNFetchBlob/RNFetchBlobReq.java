@@ -1,17 +1,14 @@
 package com.RNFetchBlob;
 
 import android.app.DownloadManager;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
-import android.util.Base64;
 
 import com.RNFetchBlob.Response.RNFetchBlobDefaultResp;
 import com.RNFetchBlob.Response.RNFetchBlobFileResp;
+import com.RNFetchBlob.Response.RNFetchBlobZipResp;
 import com.facebook.common.logging.FLog;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Callback;
@@ -29,22 +26,17 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
 
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
-import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
 import okhttp3.Headers;
 import okhttp3.Interceptor;
@@ -57,7 +49,7 @@ import okhttp3.ResponseBody;
 import okhttp3.TlsVersion;
 
 
-public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
+public class RNFetchBlobReq implements Runnable {
 
     enum RequestType  {
         Form,
@@ -69,7 +61,8 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
 
     enum ResponseType {
         KeepInMemory,
-        FileStorage
+        FileStorage,
+        Extract
     }
 
     enum ResponseFormat {
@@ -78,10 +71,6 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
         BASE64
     }
 
-    public static HashMap<String, Call> taskTable = new HashMap<>();
-    static HashMap<String, RNFetchBlobProgressConfig> progressReport = new HashMap<>();
-    static HashMap<String, RNFetchBlobProgressConfig> uploadProgressReport = new HashMap<>();
-    static ConnectionPool pool = new ConnectionPool();
 
     ReactApplicationContext ctx;
     RNFetchBlobConfig options;
@@ -98,11 +87,43 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
     RNFetchBlobBody requestBody;
     RequestType requestType;
     ResponseType responseType;
+    // memory budget reserved when the task is admitted, taken over by the response decoder
+    long memoryReserved = 0;
     ResponseFormat responseFormat = ResponseFormat.Auto;
     WritableMap respInfo;
     boolean timeout = false;
     ArrayList<String> redirects = new ArrayList<>();
     OkHttpClient client;
+    Request request;
+    RNFetchBlobJournal.Entry journal;
+    long resumeOffset = 0;
+    // size of the destination before the first attempt of an append mode download, -1 if not
+    // recorded yet
+    long appendBase = -1;
+    RNFetchBlobScheduler.Priority priority;
+    String host;
+    // order in which the task has been queued by the scheduler
+    long queueSeq;
+    // cache key of `key` option and the cached response which is being revalidated
+    String cacheKey;
+    RNFetchBlobCache.Entry cacheEntry;
+    // the batch which the task belongs to
+    RNFetchBlobBatch batch;
+    int batchIndex = -1;
+    int batchStatus = -1;
+    // computes digests of the response body, null when `hash` option is not set
+    RNFetchBlobHasher hasher;
+    // if the response body is passed through the hasher
+    boolean hashing = false;
+    // attempts of `retry` option which have failed, and the attempt in progress
+    ArrayList<RNFetchBlobRetryPolicy.Attempt> attempts = new ArrayList<>();
+    int attempt = 0;
+    long firstAttemptAt;
+    long attemptStart;
+    // splits the response body into records, null when `framing` option is not set
+    RNFetchBlobRecordFramer framer;
+    // phases of the call of current attempt, set when the call is created
+    RNFetchBlobTimings timings;
 
     public RNFetchBlobReq(ReadableMap options, String taskId, String method, String url, ReadableMap headers, String body, ReadableArray arrayBody, OkHttpClient client, final Callback callback) {
         this.method = method.toUpperCase();
@@ -114,8 +135,11 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
         this.rawRequestBody = body;
         this.rawRequestBodyArray = arrayBody;
         this.client = client;
+        this.priority = RNFetchBlobScheduler.parsePriority(this.options.priority);
 
-        if(this.options.fileCache || this.options.path != null)
+        if(this.options.extractTo != null)
+            responseType = ResponseType.Extract;
+        else if(this.options.fileCache || this.options.path != null)
             responseType = ResponseType.FileStorage;
         else
             responseType = ResponseType.KeepInMemory;
@@ -130,16 +154,47 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
     }
 
     public static void cancelTask(String taskId) {
-        if(taskTable.containsKey(taskId)) {
-            Call call = taskTable.get(taskId);
-            call.cancel();
-            taskTable.remove(taskId);
+        if(RNFetchBlobBatch.cancel(taskId))
+            return;
+        // the task has not started yet
+        RNFetchBlobReq queued = RNFetchBlobScheduler.cancel(taskId);
+        if(queued != null) {
+            RNFetchBlobTaskRegistry.cancel(taskId);
+            queued.callback.invoke("Canceled", null, null);
+            queued.releaseTaskResource();
+            return;
+        }
+        RNFetchBlobTaskRegistry.markCancelled(taskId);
+        // tasks which share a transfer are detached, the transfer goes on for the others
+        taskId = RNFetchBlobCoalescer.detach(taskId);
+        if(taskId == null)
+            return;
+        // a task which has not created its call yet cancels the call once it's created
+        RNFetchBlobTaskRegistry.cancel(taskId);
+        RNFetchBlobSegmentedDownload.cancel(taskId);
+        // the task is waiting for next attempt, it has no call to cancel
+        RNFetchBlobReq waiting = RNFetchBlobRetryPolicy.cancel(taskId);
+        if(waiting != null) {
+            waiting.callback.invoke("Canceled", null, null);
+            waiting.releaseTaskResource();
+        }
+        // the download is removed from download manager
+        RNFetchBlobReq download = RNFetchBlobDownloadTracker.cancel(taskId);
+        if(download != null) {
+            download.callback.invoke("Canceled", null, null);
+            download.releaseTaskResource();
         }
     }
 
     @Override
     public void run() {
 
+        if(!RNFetchBlobTaskRegistry.start(taskId)) {
+            callback.invoke("Canceled", null, null);
+            releaseTaskResource();
+            return;
+        }
+
         // use download manager instead of default HTTP implementation
         if (options.addAndroidDownloads != null && options.addAndroidDownloads.hasKey("useDownloadManager")) {
 
@@ -172,14 +227,16 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
                 Context appCtx = RNFetchBlob.RCTContext.getApplicationContext();
                 DownloadManager dm = (DownloadManager) appCtx.getSystemService(Context.DOWNLOAD_SERVICE);
                 downloadManagerId = dm.enqueue(req);
-                appCtx.registerReceiver(this, new IntentFilter(DownloadManager.ACTION_DOWNLOAD_COMPLETE));
+                RNFetchBlobDownloadTracker.track(this, downloadManagerId);
+                // the download is performed by download manager
+                RNFetchBlobScheduler.finish(taskId);
                 return;
             }
 
         }
 
         // find cached result if `key` property exists
-        String cacheKey = this.taskId;
+        String fileName = this.taskId;
         String ext = this.options.appendExt.isEmpty() ? "" : "." + this.options.appendExt;
 
         if (this.options.key != null) {
@@ -187,30 +244,50 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
             if (cacheKey == null) {
                 cacheKey = this.taskId;
             }
+            fileName = cacheKey;
+        }
 
-            File file = new File(RNFetchBlobFS.getTmpPath(RNFetchBlob.RCTContext, cacheKey) + ext);
-
-            if (file.exists()) {
-                callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, file.getAbsolutePath());
+        if(this.options.extractTo != null)
+            this.destPath = this.options.extractTo;
+        else if(this.options.path != null)
+            this.destPath = this.options.path;
+        else if(this.options.fileCache)
+            this.destPath = RNFetchBlobFS.getTmpPath(RNFetchBlob.RCTContext, fileName) + ext;
+
+        if (cacheKey != null && responseType == ResponseType.FileStorage) {
+            cacheEntry = RNFetchBlobCache.get(cacheKey, destPath);
+            if (cacheEntry != null && cacheEntry.isFresh() && isCachedFileIntact()) {
+                RNFetchBlobCache.onHit(cacheEntry);
+                callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, destPath);
+                releaseTaskResource();
                 return;
             }
         }
 
-        if(this.options.path != null)
-            this.destPath = this.options.path;
-        else if(this.options.fileCache)
-            this.destPath = RNFetchBlobFS.getTmpPath(RNFetchBlob.RCTContext, cacheKey) + ext;
+        // share the transfer of an identical request which is in flight
+        if (RNFetchBlobCoalescer.join(this)) {
+            RNFetchBlobScheduler.finish(taskId);
+            return;
+        }
 
+        send();
+    }
 
-        OkHttpClient.Builder clientBuilder;
+    /**
+     * Build the request of current attempt and send it, this is invoked again for every retry.
+     */
+    void send() {
+        attempt++;
+        attemptStart = System.currentTimeMillis();
+        if(attempt == 1)
+            firstAttemptAt = attemptStart;
 
         try {
-            // use trusty SSL socket
-            if (this.options.trusty) {
-                clientBuilder = RNFetchBlobUtils.getUnsafeOkHttpClient(client);
-            } else {
-                clientBuilder = client.newBuilder();
-            }
+            restoreAppendBase();
+            hasher = RNFetchBlobHasher.create(options.hash);
+
+            // clients are shared by tasks which have the same profile
+            OkHttpClient client = RNFetchBlobClientCache.get(this.client, options);
 
             final Request.Builder builder = new Request.Builder();
             try {
@@ -239,6 +316,9 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
                 }
             }
 
+            // length prefixed records are sent as UTF-8 strings only when it's requested
+            framer = RNFetchBlobRecordFramer.create(taskId, options.framing, responseFormat != ResponseFormat.UTF8, options.framingInterval);
+
             if(method.equalsIgnoreCase("post") || method.equalsIgnoreCase("put") || method.equalsIgnoreCase("patch")) {
                 String cType = getHeaderIgnoreCases(mheaders, "Content-Type").toLowerCase();
 
@@ -271,6 +351,18 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
 
             boolean isChunkedRequest = getHeaderIgnoreCases(mheaders, "Transfer-Encoding").equalsIgnoreCase("chunked");
 
+            // continue from the checkpoint of last attempt
+            if(isResumable() && getHeaderIgnoreCases(mheaders, "Range").isEmpty())
+                prepareResume(builder);
+
+            // cached response is stale, ask the server whether it's still valid
+            if(cacheEntry != null && resumeOffset == 0) {
+                if(cacheEntry.etag != null && getHeaderIgnoreCases(mheaders, "If-None-Match").isEmpty())
+                    builder.header("If-None-Match", cacheEntry.etag);
+                if(cacheEntry.lastModified != null && getHeaderIgnoreCases(mheaders, "If-Modified-Since").isEmpty())
+                    builder.header("If-Modified-Since", cacheEntry.lastModified);
+            }
+
             // set request body
             switch (requestType) {
                 case SingleFile:
@@ -309,141 +401,386 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
                     break;
             }
 
-            // #156 fix cookie issue
+            if(requestBody != null)
+                requestBody.hasher = RNFetchBlobHasher.create(options.uploadHash);
+
+            // interceptors of the shared client find this task by the request tag
+            builder.tag(this);
             final Request req = builder.build();
-            clientBuilder.addNetworkInterceptor(new Interceptor() {
-                @Override
-                public Response intercept(Chain chain) throws IOException {
-                    redirects.add(chain.request().url().toString());
-                    return chain.proceed(chain.request());
-                }
-            });
-            // Add request interceptor for upload progress event
-            clientBuilder.addInterceptor(new Interceptor() {
-                @Override
-                public Response intercept(Chain chain) throws IOException {
-                    try {
-                        Response originalResponse = chain.proceed(req);
-                        ResponseBody extended;
-                        switch (responseType) {
-                            case KeepInMemory:
-                                extended = new RNFetchBlobDefaultResp(
-                                        RNFetchBlob.RCTContext,
-                                        taskId,
-                                        originalResponse.body(),
-                                        options.increment);
-                                break;
-                            case FileStorage:
-                                extended = new RNFetchBlobFileResp(
-                                        RNFetchBlob.RCTContext,
-                                        taskId,
-                                        originalResponse.body(),
-                                        destPath,
-                                        options.overwrite);
-                                break;
-                            default:
-                                extended = new RNFetchBlobDefaultResp(
-                                        RNFetchBlob.RCTContext,
-                                        taskId,
-                                        originalResponse.body(),
-                                        options.increment);
-                                break;
-                        }
-                        return originalResponse.newBuilder().body(extended).build();
-                    }
-                    catch(SocketException e) {
-                        timeout = true;
-                    }
-                    catch (SocketTimeoutException e ){
-                        timeout = true;
-                        RNFetchBlobUtils.emitWarningEvent("RNFetchBlob error when sending request : " + e.getLocalizedMessage());
-                    } catch(Exception ex) {
 
-                    }
-                    return chain.proceed(chain.request());
+            request = req;
+
+            // download large files using multiple connections
+            if(RNFetchBlobSegmentedDownload.isSupported(this)) {
+                new RNFetchBlobSegmentedDownload(this, client, req).start();
+                return;
+            }
+
+            enqueue(client, req);
+
+        } catch (Exception error) {
+            error.printStackTrace();
+            releaseTaskResource();
+            callback.invoke("RNFetchBlob request error: " + error.getMessage() + error.getCause());
+        }
+    }
+
+    /**
+     * Send the request and handle its response.
+     * @param client OkHttp client of the task
+     * @param req The request to send
+     */
+    void enqueue(OkHttpClient client, Request req) {
+        Call call =  client.newCall(req);
+        RNFetchBlobTaskRegistry.setCall(taskId, call);
+        call.enqueue(new okhttp3.Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if(scheduleRetry(0, e, null))
+                    return;
+                discardJournal();
+                if(respInfo == null) {
+                    respInfo = Arguments.createMap();
                 }
-            });
 
+                // check if this error caused by socket timeout
+                if(e.getClass().equals(SocketTimeoutException.class)) {
+                    respInfo.putBoolean("timeout", true);
+                    callback.invoke("request timed out.", null, null);
+                }
+                else
+                    callback.invoke(e.getLocalizedMessage(), null, null);
+                releaseTaskResource();
+            }
 
-            if(options.timeout >= 0) {
-                clientBuilder.connectTimeout(options.timeout, TimeUnit.MILLISECONDS);
-                clientBuilder.readTimeout(options.timeout, TimeUnit.MILLISECONDS);
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                RNFetchBlobTaskRegistry.onFirstByte(taskId);
+                if(!isRevalidated(response) && scheduleRetry(response.code(), null, response.header("Retry-After"))) {
+                    response.close();
+                    return;
+                }
+                addCompletedDownload();
+                done(response);
             }
+        });
+    }
 
-            clientBuilder.connectionPool(pool);
-            clientBuilder.retryOnConnectionFailure(false);
-            clientBuilder.followRedirects(options.followRedirect);
-            clientBuilder.followSslRedirects(options.followRedirect);
-            clientBuilder.retryOnConnectionFailure(true);
+    /**
+     * Add the downloaded file to Downloads app when `addAndroidDownloads` is specified.
+     */
+    private void addCompletedDownload() {
+        ReadableMap notifyConfig = options.addAndroidDownloads;
+        // Download manager settings
+        if(notifyConfig != null ) {
+            String title = "", desc = "", mime = "text/plain";
+            boolean scannable = false, notification = false;
+            if(notifyConfig.hasKey("title"))
+                title = options.addAndroidDownloads.getString("title");
+            if(notifyConfig.hasKey("description"))
+                desc = notifyConfig.getString("description");
+            if(notifyConfig.hasKey("mime"))
+                mime = notifyConfig.getString("mime");
+            if(notifyConfig.hasKey("mediaScannable"))
+                scannable = notifyConfig.getBoolean("mediaScannable");
+            if(notifyConfig.hasKey("notification"))
+                notification = notifyConfig.getBoolean("notification");
+            DownloadManager dm = (DownloadManager)RNFetchBlob.RCTContext.getSystemService(RNFetchBlob.RCTContext.DOWNLOAD_SERVICE);
+            dm.addCompletedDownload(title, desc, scannable, mime, destPath, contentLength, notification);
+        }
+    }
 
-            OkHttpClient client = enableTls12OnPreLollipop(clientBuilder).build();
+    /**
+     * Invoked when all pieces of a segmented download are written to destination.
+     * @param probe Response of the probe request, its status and headers are reported to JS.
+     */
+    void onSegmentedDownloadComplete(Response probe) {
+        addCompletedDownload();
+        updateCache(probe);
+        emitStateEvent(getResponseInfo(probe, true));
+        callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, this.destPath);
+        releaseTaskResource();
+    }
 
-            Call call =  client.newCall(req);
-            taskTable.put(taskId, call);
-            call.enqueue(new okhttp3.Callback() {
+    /**
+     * Invoked when a segmented download failed or has been cancelled.
+     * @param message Error message
+     */
+    void onSegmentedDownloadFailed(String message) {
+        callback.invoke(message, null, null);
+        releaseTaskResource();
+    }
 
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    cancelTask(taskId);
-                    if(respInfo == null) {
-                        respInfo = Arguments.createMap();
-                    }
+    /**
+     * An append mode download can't be resumed, so every attempt appends the whole body to the
+     * content which the file had before the first attempt. Bytes written by a failed attempt are
+     * truncated.
+     * @throws IOException
+     */
+    private void restoreAppendBase() throws IOException {
+        if(responseType != ResponseType.FileStorage || options.overwrite || destPath == null)
+            return;
+        File file = new File(destPath.replace("?append=true", ""));
+        if(appendBase < 0) {
+            appendBase = file.exists() ? file.length() : 0;
+            return;
+        }
+        if(!file.exists() || file.length() <= appendBase)
+            return;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(appendBase);
+        } finally {
+            raf.close();
+        }
+    }
 
-                    // check if this error caused by socket timeout
-                    if(e.getClass().equals(SocketTimeoutException.class)) {
-                        respInfo.putBoolean("timeout", true);
-                        callback.invoke("request timed out.", null, null);
-                    }
-                    else
-                        callback.invoke(e.getLocalizedMessage(), null, null);
-                    releaseTaskResource();
-                }
+    /**
+     * Check if the task downloads to a file which can be resumed.
+     * @return True when `resumable` or `retry` option is set and the response overwrites
+     * destination.
+     */
+    private boolean isResumable() {
+        return (options.resumable || options.retry != null) && responseType == ResponseType.FileStorage && options.overwrite && destPath != null;
+    }
 
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    ReadableMap notifyConfig = options.addAndroidDownloads;
-                    // Download manager settings
-                    if(notifyConfig != null ) {
-                        String title = "", desc = "", mime = "text/plain";
-                        boolean scannable = false, notification = false;
-                        if(notifyConfig.hasKey("title"))
-                            title = options.addAndroidDownloads.getString("title");
-                        if(notifyConfig.hasKey("description"))
-                            desc = notifyConfig.getString("description");
-                        if(notifyConfig.hasKey("mime"))
-                            mime = notifyConfig.getString("mime");
-                        if(notifyConfig.hasKey("mediaScannable"))
-                            scannable = notifyConfig.getBoolean("mediaScannable");
-                        if(notifyConfig.hasKey("notification"))
-                            notification = notifyConfig.getBoolean("notification");
-                        DownloadManager dm = (DownloadManager)RNFetchBlob.RCTContext.getSystemService(RNFetchBlob.RCTContext.DOWNLOAD_SERVICE);
-                        dm.addCompletedDownload(title, desc, scannable, mime, destPath, contentLength, notification);
-                    }
+    /**
+     * Start another attempt when `retry` option allows it, the attempt which has just failed is
+     * recorded and reported with response information of the task.
+     * @param status Status code of the response, 0 when the attempt failed with an error.
+     * @param error The error of the attempt, null when the server responded.
+     * @param retryAfter Value of `Retry-After` header, can be null.
+     * @return True if the task will be attempted again.
+     */
+    private boolean scheduleRetry(int status, Throwable error, String retryAfter) {
+        RNFetchBlobRetryPolicy policy = options.retry;
+        if(policy == null || !policy.isRetryable(method) || RNFetchBlobTaskRegistry.isCancelled(taskId))
+            return false;
+        if(error != null ? !policy.isRetryable(error) : !policy.isRetryable(status))
+            return false;
+        long now = System.currentTimeMillis();
+        long delay = policy.getDelay(attempt, now - firstAttemptAt, retryAfter);
+        if(delay < 0)
+            return false;
+        RNFetchBlobRetryPolicy.Attempt record = new RNFetchBlobRetryPolicy.Attempt();
+        record.number = attempt;
+        record.status = status;
+        record.error = error != null ? error.getClass().getSimpleName() + ": " + error.getLocalizedMessage() : null;
+        record.offset = resumeOffset;
+        record.duration = now - attemptStart;
+        record.delay = delay;
+        attempts.add(record);
+        // next attempt builds its own request, the journal on disk tells where to resume
+        redirects.clear();
+        timeout = false;
+        journal = null;
+        resumeOffset = 0;
+        hashing = false;
+        if(requestBody != null) {
+            requestBody.clearRequestBody();
+            requestBody = null;
+        }
+        RNFetchBlobRetryPolicy.schedule(this, delay);
+        return true;
+    }
 
-                    done(response);
-                }
-            });
+    /**
+     * Chunks of `increment` mode and records of `framing` can't be taken back once they're
+     * emitted, a response which has delivered data is not retried or JS would receive it again.
+     * @param resp Response
+     * @return True if data of the response has been emitted
+     */
+    private boolean hasDelivered(Response resp) {
+        if(framer != null && framer.hasDelivered())
+            return true;
+        return resp.body() instanceof RNFetchBlobDefaultResp && ((RNFetchBlobDefaultResp) resp.body()).hasDelivered();
+    }
 
+    /**
+     * Remove the journal of a failed download which is only resumed by retries, a download is
+     * resumed next time only when `resumable` option is set.
+     */
+    private void discardJournal() {
+        if(journal != null && !options.resumable)
+            RNFetchBlobJournal.remove(url, journal.dest);
+    }
 
-        } catch (Exception error) {
-            error.printStackTrace();
-            releaseTaskResource();
-            callback.invoke("RNFetchBlob request error: " + error.getMessage() + error.getCause());
+    /**
+     * Look up the journal of the download, when the download has been interrupted, truncate the
+     * destination to the last checkpoint and request the rest of the content.
+     * @param builder Request builder
+     * @throws IOException
+     */
+    private void prepareResume(Request.Builder builder) throws IOException {
+        journal = RNFetchBlobJournal.load(url, destPath);
+        if(journal == null)
+            journal = new RNFetchBlobJournal.Entry(url, destPath);
+        // range is defined on the identity encoding
+        builder.header("Accept-Encoding", "identity");
+        File dest = new File(destPath);
+        long offset = Math.min(journal.offset, dest.exists() ? dest.length() : 0);
+        String validator = journal.getValidator();
+        if(offset <= 0 || validator == null)
+            return;
+        RandomAccessFile file = new RandomAccessFile(dest, "rw");
+        try {
+            file.setLength(offset);
+        } finally {
+            file.close();
+        }
+        resumeOffset = offset;
+        builder.header("Range", "bytes=" + offset + "-");
+        builder.header("If-Range", validator);
+    }
+
+    /**
+     * Update validators of the journal from the response, the journal is removed when the
+     * response has no validator since the download can not be resumed safely.
+     * @param resp Response
+     * @param offset Size of content which is kept in destination
+     */
+    private void beginJournal(Response resp, long offset) {
+        journal.etag = resp.header("ETag");
+        journal.lastModified = resp.header("Last-Modified");
+        journal.offset = offset;
+        if(journal.getValidator() == null) {
+            RNFetchBlobJournal.remove(url, journal.dest);
+            journal = null;
+            return;
+        }
+        RNFetchBlobJournal.save(journal);
+    }
+
+    /**
+     * Server responds 416 when the requested range starts at the end of the content, which
+     * means the file has been completely downloaded by last attempt.
+     * @param resp Response
+     * @return True if the file is complete
+     */
+    private boolean isResumeCompleted(Response resp) {
+        if(resumeOffset <= 0 || resp.code() != 416)
+            return false;
+        String range = resp.header("Content-Range", "");
+        return range.equals("bytes */" + resumeOffset);
+    }
+
+    /**
+     * Check if the response tells that the cached response is still valid.
+     * @param resp Response
+     * @return True if the cached file should be used
+     */
+    private boolean isRevalidated(Response resp) {
+        return cacheEntry != null && resp.code() == 304;
+    }
+
+    /**
+     * Add the downloaded file to the cache of `key` option, the file is removed from the cache
+     * index when it does not contain a complete response.
+     * @param resp Response
+     */
+    private void updateCache(Response resp) {
+        if(cacheKey == null)
+            return;
+        boolean complete = resp.code() == 200 || (resp.code() == 206 && journal != null);
+        if(complete && options.overwrite)
+            RNFetchBlobCache.put(cacheKey, destPath, resp.headers());
+        else
+            RNFetchBlobCache.remove(cacheKey);
+    }
+
+    /**
+     * Invoked by the shared response interceptor, replace response body with customized body
+     * according to the response type of the task.
+     * @param chain Interceptor chain of the request.
+     * @return Response with the customized body
+     * @throws IOException
+     */
+    Response interceptResponse(Interceptor.Chain chain) throws IOException {
+        try {
+            Response originalResponse = chain.proceed(chain.request());
+            ResponseBody extended;
+            switch (responseType) {
+                case KeepInMemory:
+                    extended = new RNFetchBlobDefaultResp(
+                            RNFetchBlob.RCTContext,
+                            taskId,
+                            originalResponse.body(),
+                            options.increment)
+                            .setHasher(hasher)
+                            .setFramer(framer);
+                    break;
+                case FileStorage:
+                    // keep the cached file, it's still valid
+                    if(isRevalidated(originalResponse))
+                        return originalResponse;
+                    boolean overwrite = options.overwrite;
+                    if(journal != null) {
+                        // do not replace downloaded content with an error response
+                        if(!originalResponse.isSuccessful())
+                            return originalResponse;
+                        // server ignores the range when the content has changed
+                        overwrite = originalResponse.code() != 206;
+                        beginJournal(originalResponse, overwrite ? 0 : resumeOffset);
+                        // digests cover the whole file, including content of last attempt
+                        if(!overwrite && hasher != null)
+                            hasher.updateFromFile(destPath, resumeOffset);
+                    }
+                    extended = new RNFetchBlobFileResp(
+                            RNFetchBlob.RCTContext,
+                            taskId,
+                            originalResponse.body(),
+                            destPath,
+                            overwrite)
+                            .setJournal(journal)
+                            .setHasher(hasher);
+                    break;
+                case Extract:
+                    // error responses are not archives, they are reported without extraction
+                    if(!originalResponse.isSuccessful())
+                        return originalResponse;
+                    extended = new RNFetchBlobZipResp(
+                            RNFetchBlob.RCTContext,
+                            taskId,
+                            originalResponse.body(),
+                            destPath)
+                            .setHasher(hasher, options.expectedHash);
+                    break;
+                default:
+                    extended = new RNFetchBlobDefaultResp(
+                            RNFetchBlob.RCTContext,
+                            taskId,
+                            originalResponse.body(),
+                            options.increment)
+                            .setHasher(hasher);
+                    break;
+            }
+            hashing = hasher != null;
+            return originalResponse.newBuilder().body(extended).build();
         }
+        catch(SocketException e) {
+            timeout = true;
+        }
+        catch (SocketTimeoutException e ){
+            timeout = true;
+            RNFetchBlobUtils.emitWarningEvent("RNFetchBlob error when sending request : " + e.getLocalizedMessage());
+        } catch(Exception ex) {
+
+        }
+        return chain.proceed(chain.request());
     }
 
     /**
      * Remove cached information of the HTTP task
      */
-    private void releaseTaskResource() {
-        if(taskTable.containsKey(taskId))
-            taskTable.remove(taskId);
-        if(uploadProgressReport.containsKey(taskId))
-            uploadProgressReport.remove(taskId);
-        if(progressReport.containsKey(taskId))
-            progressReport.remove(taskId);
+    void releaseTaskResource() {
+        RNFetchBlobTaskRegistry.remove(taskId);
+        RNFetchBlobProgressAggregator.remove(taskId);
+        RNFetchBlobMemoryBudget.release(memoryReserved);
+        memoryReserved = 0;
         if(requestBody != null)
             requestBody.clearRequestBody();
+        RNFetchBlobScheduler.finish(taskId);
     }
 
     /**
@@ -452,13 +789,39 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
      */
     private void done(Response resp) {
         boolean isBlobResp = isBlobResponse(resp);
-        emitStateEvent(getResponseInfo(resp, isBlobResp));
+        WritableMap info = getResponseInfo(resp, isBlobResp);
+        if(isRevalidated(resp)) {
+            // content of the cached response is delivered
+            info.putInt("status", 200);
+            info.putString("cache", "revalidated");
+        }
+        emitStateEvent(info);
         switch (responseType) {
             case KeepInMemory:
                 try {
                     // For XMLHttpRequest, automatic response data storing strategy, when response
                     // data is considered as binary data, write it to file system
-                    if(isBlobResp && options.auto) {
+                    // records have been delivered while the body is received, the body is
+                    // drained without being kept
+                    if(framer != null) {
+                        InputStream ins = resp.body().byteStream();
+                        byte[] buffer = RNFetchBlobBufferPool.acquire();
+                        try {
+                            while (ins.read(buffer) != -1) {
+                                // records are emitted by the framer
+                            }
+                        } finally {
+                            ins.close();
+                            RNFetchBlobBufferPool.release(buffer);
+                        }
+                        String hashError = finishHash(resp, isBlobResp);
+                        if(hashError != null) {
+                            callback.invoke(hashError, null, null);
+                            break;
+                        }
+                        callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_UTF8, "");
+                    }
+                    else if(isBlobResp && options.auto) {
                         String dest = RNFetchBlobFS.getTmpPath(ctx, taskId);
                         InputStream ins = resp.body().byteStream();
                         FileOutputStream os = new FileOutputStream(new File(dest));
@@ -470,53 +833,110 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
                         ins.close();
                         os.flush();
                         os.close();
+                        String hashError = finishHash(resp, isBlobResp);
+                        if(hashError != null) {
+                            new File(dest).delete();
+                            callback.invoke(hashError, null, null);
+                            break;
+                        }
                         callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, dest);
                     }
-                    // response data directly pass to JS context as string.
+                    // response data directly pass to JS context as string, the body is
+                    // validated as UTF-8 while it's read, and sent as BASE64 string when it's not
+                    // valid UTF-8 (#73). Bodies which don't fit in memory are written to file.
                     else {
-                        // #73 Check if the response data contains valid UTF8 string, since BASE64
-                        // encoding will somehow break the UTF8 string format, to encode UTF8
-                        // string correctly, we should do URL encoding before BASE64.
-                        byte[] b = resp.body().bytes();
-                        CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
-                        if(responseFormat == ResponseFormat.BASE64) {
-                            callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_BASE64, android.util.Base64.encodeToString(b, Base64.NO_WRAP));
-                            return;
-                        }
+                        long threshold = options.memoryThreshold > 0 ? options.memoryThreshold : RNFetchBlobMemoryBudget.getThreshold();
+                        RNFetchBlobResponseDecoder decoder = new RNFetchBlobResponseDecoder(responseFormat)
+                                .setSpill(threshold, memoryReserved, RNFetchBlobFS.getTmpPath(RNFetchBlob.RCTContext, taskId));
+                        // the decoder returns the reservation to the budget
+                        memoryReserved = 0;
                         try {
-                            encoder.encode(ByteBuffer.wrap(b).asCharBuffer());
-                            // if the data contains invalid characters the following lines will be
-                            // skipped.
-                            String utf8 = new String(b);
-                            callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_UTF8, utf8);
-                        }
-                        // This usually mean the data is contains invalid unicode characters, it's
-                        // binary data
-                        catch(CharacterCodingException ignored) {
-                            if(responseFormat == ResponseFormat.UTF8) {
-                                callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_UTF8, "");
-                            }
-                            else {
-                                callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_BASE64, android.util.Base64.encodeToString(b, Base64.NO_WRAP));
+                            decoder.read(resp.body());
+                            String hashError = finishHash(resp, isBlobResp);
+                            if(hashError != null) {
+                                if(decoder.isSpilled())
+                                    new File(decoder.getResult()).delete();
+                                callback.invoke(hashError, null, null);
+                                break;
                             }
+                            String result = decoder.getResult();
+                            // the buffer is no longer needed once the result is created
+                            decoder.release();
+                            callback.invoke(null, decoder.getType(), result);
+                        } finally {
+                            decoder.release();
                         }
                     }
                 } catch (IOException e) {
+                    if(!hasDelivered(resp) && scheduleRetry(0, e, null)) {
+                        resp.body().close();
+                        return;
+                    }
                     callback.invoke("RNFetchBlob failed to encode response data to BASE64 string.", null);
                 }
                 break;
             case FileStorage:
+                if(isRevalidated(resp)) {
+                    String cachedHashError = finishCachedHash(resp, isBlobResp);
+                    if(cachedHashError != null) {
+                        RNFetchBlobCache.remove(cacheKey);
+                        new File(this.destPath).delete();
+                        callback.invoke(cachedHashError, null, null);
+                        break;
+                    }
+                    RNFetchBlobCache.onRevalidated(cacheEntry, resp.headers());
+                    callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, this.destPath);
+                    break;
+                }
                 try {
-                    // In order to write response data to `destPath` we have to invoke this method.
+                    // In order to write response data to `destPath` we have to read the body.
                     // It uses customized response body which is able to report download progress
                     // and write response data to destination path.
-                    resp.body().bytes();
-                } catch (Exception ignored) {
-//                    ignored.printStackTrace();
+                    ResponseBody body = resp.body();
+                    if(body instanceof RNFetchBlobFileResp)
+                        ((RNFetchBlobFileResp) body).drain();
+                    else
+                        body.bytes();
+                } catch (Exception ex) {
+                    // the journal is kept, so a resumable download can continue from here
+                    if(scheduleRetry(0, ex, null))
+                        return;
+                    discardJournal();
+                    callback.invoke("RNFetchBlob failed to write response data to destination : " + ex.getLocalizedMessage(), null, null);
+                    break;
                 }
+                if(journal != null && (resp.isSuccessful() || isResumeCompleted(resp)))
+                    RNFetchBlobJournal.remove(url, journal.dest);
                 this.destPath = this.destPath.replace("?append=true", "");
+                String hashError = finishHash(resp, isBlobResp);
+                if(hashError != null) {
+                    // the content is corrupted, it must not be cached or resumed
+                    if(journal != null)
+                        RNFetchBlobJournal.remove(url, journal.dest);
+                    if(cacheKey != null)
+                        RNFetchBlobCache.remove(cacheKey);
+                    new File(this.destPath).delete();
+                    callback.invoke(hashError, null, null);
+                    break;
+                }
+                updateCache(resp);
                 callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, this.destPath);
                 break;
+            case Extract:
+                if(!(resp.body() instanceof RNFetchBlobZipResp)) {
+                    callback.invoke("RNFetchBlob failed to extract response, server responded status " + resp.code(), null, null);
+                    break;
+                }
+                try {
+                    WritableArray manifest = ((RNFetchBlobZipResp) resp.body()).extract();
+                    finishHash(resp, isBlobResp);
+                    callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, this.destPath, manifest);
+                } catch (Exception ex) {
+                    if(scheduleRetry(0, ex, null))
+                        return;
+                    callback.invoke("RNFetchBlob failed to extract response : " + ex.getLocalizedMessage(), null, null);
+                }
+                break;
             default:
                 try {
                     callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_UTF8, new String(resp.body().bytes(), "UTF-8"));
@@ -530,14 +950,72 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
         releaseTaskResource();
     }
 
+    /**
+     * Report digests of the response body with another state event, which also contains
+     * response information, and verify them against `expectedHash` option.
+     * @param resp Response
+     * @param isBlobResp If the response is binary data
+     * @return Error message when digests don't match, null otherwise.
+     */
+    private String finishHash(Response resp, boolean isBlobResp) {
+        if(!hashing)
+            return null;
+        WritableMap info = getResponseInfo(resp, isBlobResp);
+        if(isRevalidated(resp))
+            info.putInt("status", 200);
+        info.putMap("hashes", hasher.getResults());
+        emitStateEvent(info);
+        return hasher.verify(options.expectedHash);
+    }
+
+    /**
+     * Hash the cached file of a revalidated response, no body has passed through the hasher.
+     * @param resp Response
+     * @param isBlobResp If the response is binary data
+     * @return Error message when the file can't be read or digests don't match, null otherwise.
+     */
+    private String finishCachedHash(Response resp, boolean isBlobResp) {
+        if(hasher == null)
+            return null;
+        try {
+            hasher.reset();
+            hasher.updateFromFile(destPath, new File(destPath).length());
+        } catch (IOException e) {
+            return "RNFetchBlob failed to hash cached file : " + e.getLocalizedMessage();
+        }
+        hashing = true;
+        return finishHash(resp, isBlobResp);
+    }
+
+    /**
+     * Check a fresh cached file against `expectedHash` option before it's used without sending a
+     * request. A file which doesn't match is removed from the cache and downloaded again.
+     * @return True if the cached file can be used
+     */
+    private boolean isCachedFileIntact() {
+        if(options.expectedHash == null)
+            return true;
+        try {
+            RNFetchBlobHasher cached = RNFetchBlobHasher.create(options.hash);
+            cached.updateFromFile(destPath, new File(destPath).length());
+            if(cached.verify(options.expectedHash) == null)
+                return true;
+        } catch (Exception e) {
+            // the request reports the error, if any
+        }
+        RNFetchBlobCache.remove(cacheKey);
+        cacheEntry = null;
+        return false;
+    }
+
     /**
      * Invoke this method to enable download progress reporting.
      * @param taskId Task ID of the HTTP task.
      * @return Task ID of the target task
      */
     public static RNFetchBlobProgressConfig getReportProgress(String taskId) {
-        if(!progressReport.containsKey(taskId)) return null;
-        return progressReport.get(taskId);
+        RNFetchBlobTaskRegistry.Entry entry = RNFetchBlobTaskRegistry.get(taskId);
+        return entry == null ? null : entry.progressConfig;
     }
 
     /**
@@ -546,8 +1024,8 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
      * @return Task ID of the target task
      */
     public static RNFetchBlobProgressConfig getReportUploadProgress(String taskId) {
-        if(!uploadProgressReport.containsKey(taskId)) return null;
-        return uploadProgressReport.get(taskId);
+        RNFetchBlobTaskRegistry.Entry entry = RNFetchBlobTaskRegistry.get(taskId);
+        return entry == null ? null : entry.uploadProgressConfig;
     }
 
     /**
@@ -572,6 +1050,12 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
         }
         info.putArray("redirects", redirectList);
         info.putMap("headers", headers);
+        if(requestBody != null && requestBody.hasher != null)
+            info.putMap("uploadHashes", requestBody.hasher.getResults());
+        if(options.retry != null)
+            info.putArray("attempts", getAttempts(resp.code()));
+        if(timings != null)
+            info.putMap("timings", timings.toMap());
         Headers h = resp.headers();
         if(isBlobResp) {
             info.putString("respType", "blob");
@@ -588,6 +1072,26 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
         return info;
     }
 
+    /**
+     * Get records of every attempt of the task, the last one is the attempt which received
+     * the response.
+     * @param status Status code of the response
+     * @return Array of attempts
+     */
+    private WritableArray getAttempts(int status) {
+        WritableArray list = Arguments.createArray();
+        for(RNFetchBlobRetryPolicy.Attempt record : attempts) {
+            list.pushMap(record.toMap());
+        }
+        RNFetchBlobRetryPolicy.Attempt current = new RNFetchBlobRetryPolicy.Attempt();
+        current.number = attempt;
+        current.status = status;
+        current.offset = resumeOffset;
+        current.duration = System.currentTimeMillis() - attemptStart;
+        list.pushMap(current.toMap());
+        return list;
+    }
+
     /**
      * Check if response data is binary data.
      * @param resp OkHttp response.
@@ -624,72 +1128,95 @@ public class RNFetchBlobReq extends BroadcastReceiver implements Runnable {
     }
 
     private void emitStateEvent(WritableMap args) {
-        RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                .emit(RNFetchBlobConst.EVENT_HTTP_STATE, args);
+        // tasks of a batch report the status with their results
+        if(batch != null)
+            batch.onState(this, args);
+        List<String> members = RNFetchBlobCoalescer.getMembers(taskId);
+        for(int i = 0; i < members.size(); i++) {
+            if(batch != null && members.get(i).equals(taskId))
+                continue;
+            WritableMap event = args;
+            // a map can only be sent once, other members get a copy
+            if(i < members.size() - 1) {
+                event = Arguments.createMap();
+                event.merge(args);
+            }
+            event.putString("taskId", members.get(i));
+            RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(RNFetchBlobConst.EVENT_HTTP_STATE, event);
+        }
     }
 
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        String action = intent.getAction();
-        if (DownloadManager.ACTION_DOWNLOAD_COMPLETE.equals(action)) {
-            Context appCtx = RNFetchBlob.RCTContext.getApplicationContext();
-            long id = intent.getExtras().getLong(DownloadManager.EXTRA_DOWNLOAD_ID);
-            if (id == this.downloadManagerId) {
-                DownloadManager.Query query = new DownloadManager.Query();
-                query.setFilterById(downloadManagerId);
-                DownloadManager dm = (DownloadManager) appCtx.getSystemService(Context.DOWNLOAD_SERVICE);
-                dm.query(query);
-                Cursor c = dm.query(query);
-
-
-                String filePath = null;
-                // the file exists in media content database
-                if (c.moveToFirst()) {
-                    // #297 handle failed request
-                    int statusCode = c.getInt(c.getColumnIndex(DownloadManager.COLUMN_STATUS));
-                    if(statusCode == DownloadManager.STATUS_FAILED) {
-                        this.callback.invoke("Download manager failed to download from  " + this.url + ". Statu Code = " + statusCode, null, null);
-                        return;
-                    }
-                    String contentUri = c.getString(c.getColumnIndex(DownloadManager.COLUMN_LOCAL_URI));
-                    if ( contentUri != null &&
-                            options.addAndroidDownloads.hasKey("mime") &&
-                            options.addAndroidDownloads.getString("mime").contains("image")) {
-                        Uri uri = Uri.parse(contentUri);
-                        Cursor cursor = appCtx.getContentResolver().query(uri, new String[]{android.provider.MediaStore.Images.ImageColumns.DATA}, null, null, null);
-
-                            // use default destination of DownloadManager
-                        if (cursor != null) {
-                            cursor.moveToFirst();
-                            filePath = cursor.getString(0);
-                        }
-                    }
-                }
+    /**
+     * Report download progress of a task, the progress is also reported for tasks which share
+     * the task's transfer. Progress is emitted by {@link RNFetchBlobProgressAggregator} on next frame.
+     * @param taskId Task ID of the transfer
+     * @param written Number of bytes received
+     * @param total Content length
+     */
+    public static void emitProgressEvent(String taskId, long written, long total) {
+        RNFetchBlobTaskRegistry.onBytesIn(taskId, written);
+        if(total == 0)
+            return;
+        for(String id : RNFetchBlobCoalescer.getMembers(taskId)) {
+            RNFetchBlobProgressAggregator.update(id, written, total, false);
+        }
+    }
 
-                // When the file is not found in media content database, check if custom path exists
-                if (options.addAndroidDownloads.hasKey("path")) {
-                    try {
-                        String customDest = options.addAndroidDownloads.getString("path");
-                        boolean exists = new File(customDest).exists();
-                        if(!exists)
-                            throw new Exception("Download manager download failed, the file does not downloaded to destination.");
-                        else
-                            this.callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, customDest);
-
-                    } catch(Exception ex) {
-                        ex.printStackTrace();
-                        this.callback.invoke(ex.getLocalizedMessage(), null);
-                    }
-                }
-                else {
-                    if(filePath == null)
-                        this.callback.invoke("Download manager could not resolve downloaded file path.", RNFetchBlobConst.RNFB_RESPONSE_PATH, null);
-                    else
-                        this.callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, filePath);
+    /**
+     * Invoked when download manager has finished the download of this task.
+     * @param statusCode Status of the download, -1 when the download is not found.
+     * @param contentUri Local URI of downloaded file, can be null.
+     */
+    void onDownloadManagerComplete(int statusCode, String contentUri) {
+        Context appCtx = RNFetchBlob.RCTContext.getApplicationContext();
+        String filePath = null;
+        // #297 handle failed request
+        if(statusCode == DownloadManager.STATUS_FAILED) {
+            this.callback.invoke("Download manager failed to download from  " + this.url + ". Statu Code = " + statusCode, null, null);
+            releaseTaskResource();
+            return;
+        }
+        // the file exists in media content database
+        if ( contentUri != null &&
+                options.addAndroidDownloads.hasKey("mime") &&
+                options.addAndroidDownloads.getString("mime").contains("image")) {
+            Uri uri = Uri.parse(contentUri);
+            Cursor cursor = appCtx.getContentResolver().query(uri, new String[]{android.provider.MediaStore.Images.ImageColumns.DATA}, null, null, null);
+
+            // use default destination of DownloadManager
+            if (cursor != null) {
+                try {
+                    if(cursor.moveToFirst())
+                        filePath = cursor.getString(0);
+                } finally {
+                    cursor.close();
                 }
+            }
+        }
 
+        // When the file is not found in media content database, check if custom path exists
+        if (options.addAndroidDownloads.hasKey("path")) {
+            try {
+                String customDest = options.addAndroidDownloads.getString("path");
+                boolean exists = new File(customDest).exists();
+                if(!exists)
+                    throw new Exception("Download manager download failed, the file does not downloaded to destination.");
+                else
+                    this.callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, customDest);
+
+            } catch(Exception ex) {
+                ex.printStackTrace();
+                this.callback.invoke(ex.getLocalizedMessage(), null);
             }
         }
+        else {
+            if(filePath == null)
+                this.callback.invoke("Download manager could not resolve downloaded file path.", RNFetchBlobConst.RNFB_RESPONSE_PATH, null);
+            else
+                this.callback.invoke(null, RNFetchBlobConst.RNFB_RESPONSE_PATH, filePath);
+        }
+        releaseTaskResource();
     }
 
     public static OkHttpClient.Builder enableTls12OnPreLollipop(OkHttpClient.Builder client) {
@@ -0,0 +1,359 @@
+package com.RNFetchBlob;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Turns a response body which is kept in memory into the string sent to JS, reading the body
+ * only once. In UTF-8 and auto format the bytes are validated as UTF-8 while they are read into
+ * a buffer sized from `Content-Length`, and the buffer is decoded once at the end, or encoded
+ * to BASE64 in auto format when it's not valid UTF-8. In BASE64 format the body is encoded while
+ * it's read, so the raw bytes are never buffered.
+ *
+ * The buffer is reserved from {@link RNFetchBlobMemoryBudget}, starting from the reservation the
+ * task got when it was admitted. When the body exceeds the memory threshold of the task, or the
+ * budget doesn't have room for it, the body is written to a file instead and the path of the
+ * file is the result. Reading never waits for memory.
+ */
+class RNFetchBlobResponseDecoder {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final byte[] BASE64_DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(ASCII);
+    private static final int[] BASE64_VALUES = new int[128];
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+    private static final int MIN_CAPACITY = 8192;
+
+    static {
+        for(int i = 0; i < BASE64_DIGITS.length; i++) {
+            BASE64_VALUES[BASE64_DIGITS[i]] = i;
+        }
+    }
+
+    private final RNFetchBlobReq.ResponseFormat format;
+    // raw bytes in UTF-8 and auto format, BASE64 digits in BASE64 format
+    private byte[] data;
+    private int size = 0;
+    // number of raw bytes which have been read
+    private long received = 0;
+    private boolean valid = true;
+    // state of UTF-8 validation, number of continuation bytes expected and range of next byte
+    private int pending = 0;
+    private int lower = 0x80;
+    private int upper = 0xBF;
+    // bytes of an incomplete BASE64 group
+    private int carry = 0;
+    private int carrySize = 0;
+    // memory limit of the body and the file which receives the body beyond the limit
+    private long threshold = Long.MAX_VALUE;
+    private String spillPath;
+    private FileOutputStream spill;
+    private long reserved = 0;
+
+    RNFetchBlobResponseDecoder(RNFetchBlobReq.ResponseFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Write the body to a file when it does not fit in memory.
+     * @param threshold Max number of bytes of the body kept in memory
+     * @param reserved Memory the task has reserved already, it's released with the buffer.
+     * @param path Path of the file
+     * @return object itself
+     */
+    RNFetchBlobResponseDecoder setSpill(long threshold, long reserved, String path) {
+        this.threshold = threshold;
+        this.reserved = reserved;
+        this.spillPath = path;
+        return this;
+    }
+
+    /**
+     * Read the body until the end, the body is closed afterwards.
+     * @param body Response body
+     * @throws IOException
+     */
+    void read(ResponseBody body) throws IOException {
+        byte[] buffer = RNFetchBlobBufferPool.acquire();
+        InputStream in = body.byteStream();
+        boolean success = false;
+        try {
+            long length = body.contentLength();
+            long capacity = length >= 0 ? getCapacity(length) : MIN_CAPACITY;
+            if(spillPath != null && (length > threshold || capacity > MAX_SIZE || !reserveInitial(capacity)))
+                openSpill();
+            else if(capacity > MAX_SIZE)
+                throw new IOException("response is too large to be kept in memory : " + length + " bytes");
+            else
+                data = new byte[(int) capacity];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if(spill == null && !reserve(read))
+                    openSpill();
+                received += read;
+                if(spill != null)
+                    spill.write(buffer, 0, read);
+                else if(format == RNFetchBlobReq.ResponseFormat.BASE64)
+                    encode(buffer, read);
+                else {
+                    if(valid)
+                        valid = validate(buffer, read);
+                    System.arraycopy(buffer, 0, data, size, read);
+                    size += read;
+                }
+            }
+            // a truncated sequence at the end
+            if(pending != 0)
+                valid = false;
+            success = true;
+        } finally {
+            in.close();
+            RNFetchBlobBufferPool.release(buffer);
+            if(spill != null)
+                spill.close();
+            if(!success)
+                release();
+            if(!success && spill != null)
+                new File(spillPath).delete();
+        }
+    }
+
+    /**
+     * Resize the reservation to the initial size of the buffer.
+     * @return False if the budget doesn't have room for the buffer.
+     */
+    private boolean reserveInitial(long capacity) {
+        if(capacity > reserved) {
+            if(!RNFetchBlobMemoryBudget.tryAcquire(capacity - reserved))
+                return false;
+        }
+        else {
+            RNFetchBlobMemoryBudget.release(reserved - capacity);
+        }
+        reserved = capacity;
+        return true;
+    }
+
+    /**
+     * Return the memory of the body to budget, the result must have been taken.
+     */
+    void release() {
+        RNFetchBlobMemoryBudget.release(reserved);
+        reserved = 0;
+        data = null;
+    }
+
+    boolean isSpilled() {
+        return spill != null;
+    }
+
+    /**
+     * @return RNFB_RESPONSE_UTF8, RNFB_RESPONSE_BASE64 or RNFB_RESPONSE_PATH when the body has
+     * been written to a file.
+     */
+    String getType() {
+        if(spill != null)
+            return RNFetchBlobConst.RNFB_RESPONSE_PATH;
+        if(format == RNFetchBlobReq.ResponseFormat.BASE64 || (!valid && format == RNFetchBlobReq.ResponseFormat.Auto))
+            return RNFetchBlobConst.RNFB_RESPONSE_BASE64;
+        return RNFetchBlobConst.RNFB_RESPONSE_UTF8;
+    }
+
+    /**
+     * Get decoded body, the body must have been read.
+     * @return UTF-8 string or BASE64 string of the body, an empty string when the body is not
+     * valid UTF-8 in UTF-8 format, or path of the file which contains the body.
+     */
+    String getResult() {
+        if(spill != null)
+            return spillPath;
+        switch (format) {
+            case BASE64:
+                finishEncoding();
+                return new String(data, 0, size, ASCII);
+            case UTF8:
+                return valid ? new String(data, 0, size, UTF8) : "";
+            default:
+                return valid ? new String(data, 0, size, UTF8) : android.util.Base64.encodeToString(data, 0, size, android.util.Base64.NO_WRAP);
+        }
+    }
+
+    /**
+     * Number of bytes the buffer needs for given number of raw bytes, BASE64 digits take 4 bytes
+     * for every 3 bytes.
+     */
+    private long getCapacity(long length) {
+        return format == RNFetchBlobReq.ResponseFormat.BASE64 ? (length + 2) / 3 * 4 : length;
+    }
+
+    /**
+     * Make room for next chunk of the body, the buffer grows only when the body has no
+     * `Content-Length` or the header is wrong.
+     * @param length Number of raw bytes of the chunk
+     * @return False if the body should be written to file from now on.
+     * @throws IOException When the body does not fit in memory and there's no file to write to.
+     */
+    private boolean reserve(int length) throws IOException {
+        if(spillPath != null && received + length > threshold)
+            return false;
+        long needed = size + getCapacity(carrySize + length);
+        if(needed <= data.length)
+            return true;
+        if(needed > MAX_SIZE) {
+            if(spillPath != null)
+                return false;
+            throw new IOException("response is too large to be kept in memory");
+        }
+        int capacity = (int) Math.min(MAX_SIZE, Math.max((long) data.length * 2, needed));
+        if(spillPath != null) {
+            if(!RNFetchBlobMemoryBudget.tryAcquire(capacity - data.length))
+                return false;
+            reserved += capacity - data.length;
+        }
+        byte[] grown = new byte[capacity];
+        System.arraycopy(data, 0, grown, 0, size);
+        data = grown;
+        return true;
+    }
+
+    /**
+     * Write the part of the body which is in memory to the spill file, the rest of the body is
+     * written to the file directly.
+     * @throws IOException
+     */
+    private void openSpill() throws IOException {
+        RNFetchBlobMemoryBudget.onSpill();
+        File file = new File(spillPath);
+        File parent = file.getParentFile();
+        if(parent != null && !parent.exists() && !parent.mkdirs())
+            throw new IOException("Couldn't create dir: " + parent);
+        spill = new FileOutputStream(file);
+        if(data != null) {
+            if(format == RNFetchBlobReq.ResponseFormat.BASE64)
+                writeDecoded();
+            else
+                spill.write(data, 0, size);
+        }
+        release();
+    }
+
+    /**
+     * Decode BASE64 digits which have been encoded back to raw bytes for the spill file.
+     * @throws IOException
+     */
+    private void writeDecoded() throws IOException {
+        byte[] buffer = RNFetchBlobBufferPool.acquire();
+        try {
+            int n = 0;
+            for(int i = 0; i < size; i += 4) {
+                if(n + 3 > buffer.length) {
+                    spill.write(buffer, 0, n);
+                    n = 0;
+                }
+                int group = BASE64_VALUES[data[i]] << 18 | BASE64_VALUES[data[i + 1]] << 12
+                        | BASE64_VALUES[data[i + 2]] << 6 | BASE64_VALUES[data[i + 3]];
+                buffer[n++] = (byte) (group >> 16);
+                buffer[n++] = (byte) (group >> 8);
+                buffer[n++] = (byte) group;
+            }
+            for(int k = carrySize - 1; k >= 0; k--) {
+                buffer[n++] = (byte) (carry >> (8 * k));
+            }
+            spill.write(buffer, 0, n);
+        } finally {
+            RNFetchBlobBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Validate next chunk of the body, overlong forms, surrogates and code points above
+     * U+10FFFF are rejected.
+     * @return False if the chunk is not valid UTF-8
+     */
+    private boolean validate(byte[] bytes, int length) {
+        for(int i = 0; i < length; i++) {
+            int c = bytes[i] & 0xff;
+            if(pending == 0) {
+                if(c < 0x80)
+                    continue;
+                if(c >= 0xC2 && c <= 0xDF) {
+                    pending = 1;
+                }
+                else if(c >= 0xE0 && c <= 0xEF) {
+                    pending = 2;
+                    lower = c == 0xE0 ? 0xA0 : 0x80;
+                    upper = c == 0xED ? 0x9F : 0xBF;
+                }
+                else if(c >= 0xF0 && c <= 0xF4) {
+                    pending = 3;
+                    lower = c == 0xF0 ? 0x90 : 0x80;
+                    upper = c == 0xF4 ? 0x8F : 0xBF;
+                }
+                else
+                    return false;
+            }
+            else {
+                if(c < lower || c > upper)
+                    return false;
+                lower = 0x80;
+                upper = 0xBF;
+                pending--;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encode next chunk of the body, up to 2 bytes are carried to next chunk to complete a group.
+     */
+    private void encode(byte[] bytes, int length) {
+        int i = 0;
+        // complete the group of last chunk
+        while (carrySize > 0 && carrySize < 3 && i < length) {
+            carry = (carry << 8) | (bytes[i++] & 0xff);
+            carrySize++;
+        }
+        if(carrySize == 3) {
+            putGroup(carry);
+            carry = 0;
+            carrySize = 0;
+        }
+        int groups = (length - i) / 3;
+        for(int g = 0; g < groups; g++, i += 3) {
+            putGroup((bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff));
+        }
+        while (i < length) {
+            carry = (carry << 8) | (bytes[i++] & 0xff);
+            carrySize++;
+        }
+    }
+
+    private void putGroup(int group) {
+        data[size++] = BASE64_DIGITS[(group >> 18) & 0x3f];
+        data[size++] = BASE64_DIGITS[(group >> 12) & 0x3f];
+        data[size++] = BASE64_DIGITS[(group >> 6) & 0x3f];
+        data[size++] = BASE64_DIGITS[group & 0x3f];
+    }
+
+    /**
+     * Encode the incomplete group at the end of the body with padding, the buffer always has
+     * room for it since capacity is reserved for carried bytes.
+     */
+    private void finishEncoding() {
+        if(carrySize == 0)
+            return;
+        putGroup(carry << (8 * (3 - carrySize)));
+        data[size - 1] = '=';
+        if(carrySize == 1)
+            data[size - 2] = '=';
+        carry = 0;
+        carrySize = 0;
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy of a task, set by `retry` option. A failed attempt is retried when its status
+ * code or error is retryable, with exponential backoff and jitter, until the number of attempts
+ * or the deadline runs out. Tasks which are waiting for next attempt keep their scheduler slot
+ * and are started again by a shared timer thread.
+ */
+public class RNFetchBlobRetryPolicy {
+
+    private static final int[] DEFAULT_STATUSES = { 408, 429, 500, 502, 503, 504 };
+    private static final String[] DEFAULT_ERRORS = {
+            "SocketTimeoutException",
+            "ConnectException",
+            "NoRouteToHostException",
+            "UnknownHostException",
+            "SocketException",
+            "EOFException",
+            "ProtocolException",
+            "StreamResetException"
+    };
+    private static final String[] DEFAULT_METHODS = { "GET", "HEAD", "OPTIONS", "PUT", "DELETE" };
+
+    // max number of attempts, including the first one
+    int attempts = 3;
+    // delay before the second attempt, doubled for every following attempt
+    long backoff = 1000;
+    long maxBackoff = 30000;
+    // fraction of the delay which is randomized
+    double jitter = 0.5;
+    // max time in milliseconds from the first attempt to the start of a retry, 0 means no limit
+    long deadline = 0;
+    HashSet<Integer> statuses = new HashSet<>();
+    HashSet<String> errors = new HashSet<>(Arrays.asList(DEFAULT_ERRORS));
+    HashSet<String> methods = new HashSet<>(Arrays.asList(DEFAULT_METHODS));
+
+    private static final Random random = new Random();
+    private static final ConcurrentHashMap<String, RNFetchBlobReq> waiting = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService timer;
+
+    /**
+     * Record of a finished attempt, reported in `attempts` of response information.
+     */
+    static class Attempt {
+        int number;
+        int status;
+        String error;
+        long offset;
+        long duration;
+        long delay;
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+            map.putInt("attempt", number);
+            map.putInt("status", status);
+            map.putString("error", error);
+            map.putDouble("offset", offset);
+            map.putDouble("duration", duration);
+            map.putDouble("delay", delay);
+            return map;
+        }
+    }
+
+    RNFetchBlobRetryPolicy() {
+        for(int status : DEFAULT_STATUSES) {
+            statuses.add(status);
+        }
+    }
+
+    /**
+     * Create a policy from `retry` option, which is either the max number of attempts or an
+     * object contains `attempts`, `backoff`, `maxBackoff`, `jitter`, `deadline`, `statuses`,
+     * `errors` and `methods`.
+     * @param config The option object
+     * @return Retry policy
+     */
+    static RNFetchBlobRetryPolicy fromMap(ReadableMap config) {
+        RNFetchBlobRetryPolicy policy = new RNFetchBlobRetryPolicy();
+        if(config.hasKey("attempts"))
+            policy.attempts = config.getInt("attempts");
+        if(config.hasKey("backoff"))
+            policy.backoff = (long) config.getDouble("backoff");
+        if(config.hasKey("maxBackoff"))
+            policy.maxBackoff = (long) config.getDouble("maxBackoff");
+        if(config.hasKey("jitter"))
+            policy.jitter = Math.max(0, Math.min(1, config.getDouble("jitter")));
+        if(config.hasKey("deadline"))
+            policy.deadline = (long) config.getDouble("deadline");
+        if(config.hasKey("statuses")) {
+            ReadableArray list = config.getArray("statuses");
+            policy.statuses.clear();
+            for(int i = 0; i < list.size(); i++) {
+                policy.statuses.add(list.getInt(i));
+            }
+        }
+        if(config.hasKey("errors")) {
+            ReadableArray list = config.getArray("errors");
+            policy.errors.clear();
+            for(int i = 0; i < list.size(); i++) {
+                policy.errors.add(list.getString(i));
+            }
+        }
+        if(config.hasKey("methods")) {
+            ReadableArray list = config.getArray("methods");
+            policy.methods.clear();
+            for(int i = 0; i < list.size(); i++) {
+                policy.methods.add(list.getString(i).toUpperCase());
+            }
+        }
+        return policy;
+    }
+
+    boolean isRetryable(String method) {
+        return methods.contains(method.toUpperCase());
+    }
+
+    boolean isRetryable(int status) {
+        return statuses.contains(status);
+    }
+
+    /**
+     * Check if an error is retryable, an error matches when the simple name of its class, a
+     * super class or a cause is listed in `errors`.
+     * @param error The error of an attempt
+     * @return True if the error is retryable
+     */
+    boolean isRetryable(Throwable error) {
+        for(Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            for(Class<?> c = e.getClass(); c != null; c = c.getSuperclass()) {
+                if(errors.contains(c.getSimpleName()))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compute the delay before next attempt.
+     * @param attempt Number of attempts which have been made
+     * @param elapsed Time in milliseconds since the first attempt started
+     * @param retryAfter Value of `Retry-After` header in seconds, can be null.
+     * @return Delay in milliseconds, -1 when no more attempt is allowed.
+     */
+    long getDelay(int attempt, long elapsed, String retryAfter) {
+        if(attempt >= attempts)
+            return -1;
+        long delay = Math.min(maxBackoff, backoff << Math.min(attempt - 1, 30));
+        delay -= (long) (delay * jitter * random.nextDouble());
+        if(retryAfter != null) {
+            try {
+                delay = Math.max(delay, Long.parseLong(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+                // HTTP date is not supported, the backoff is used
+            }
+        }
+        if(deadline > 0 && elapsed + delay > deadline)
+            return -1;
+        return delay;
+    }
+
+    /**
+     * Start the next attempt of a task after given delay.
+     * @param task HTTP task
+     * @param delay Delay in milliseconds
+     */
+    static void schedule(final RNFetchBlobReq task, long delay) {
+        waiting.put(task.taskId, task);
+        getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                // the task has been cancelled while waiting
+                if(waiting.remove(task.taskId) == null)
+                    return;
+                task.send();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop a task which is waiting for next attempt.
+     * @param taskId Task ID
+     * @return The task, null if the task is not waiting.
+     */
+    static RNFetchBlobReq cancel(String taskId) {
+        return waiting.remove(taskId);
+    }
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if(timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RNFetchBlobRetry");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return timer;
+    }
+
+}
@@ -0,0 +1,352 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Admission control of HTTP tasks. Tasks wait in one queue per priority class until the number
+ * of in-flight tasks, both in total and for the task's host, is under the limit. Queues are
+ * served by weighted round robin so background tasks can not starve interactive ones, and
+ * interactive tasks never wait for the whole background queue.
+ */
+public class RNFetchBlobScheduler {
+
+    public enum Priority {
+        Interactive,
+        Normal,
+        Background
+    }
+
+    // number of tasks each class may start in one round
+    private static final int[] weights = new int[] { 8, 3, 1 };
+
+    private static int maxRequests = 32;
+    private static int maxRequestsPerHost = 4;
+
+    private static final ArrayList<TaskQueue> queues = new ArrayList<>();
+    // queued tasks by task ID
+    private static final HashMap<String, RNFetchBlobReq> queued = new HashMap<>();
+    private static long nextSeq = 0;
+    private static final HashMap<String, String> running = new HashMap<>();
+    private static final HashMap<String, Integer> runningPerHost = new HashMap<>();
+    private static final int[] credits = new int[weights.length];
+
+    static {
+        for(int i = 0; i < weights.length; i++) {
+            queues.add(new TaskQueue());
+        }
+    }
+
+    /**
+     * Parse priority option, unknown values are treated as normal priority.
+     * @param value One of `interactive`, `normal`, `background`
+     * @return Priority class
+     */
+    static Priority parsePriority(String value) {
+        if(value == null)
+            return Priority.Normal;
+        if(value.equalsIgnoreCase("interactive"))
+            return Priority.Interactive;
+        if(value.equalsIgnoreCase("background"))
+            return Priority.Background;
+        return Priority.Normal;
+    }
+
+    /**
+     * Queue the task, it starts on the worker thread pool once admitted.
+     * @param task HTTP task
+     */
+    static void submit(RNFetchBlobReq task) {
+        RNFetchBlobTaskRegistry.register(task);
+        task.host = getHost(task.url);
+        synchronized (queues) {
+            enqueue(task);
+        }
+        promote();
+    }
+
+    /**
+     * Add a task to the tail of the queue of its priority class.
+     */
+    private static void enqueue(RNFetchBlobReq task) {
+        task.queueSeq = nextSeq++;
+        queues.get(task.priority.ordinal()).add(task, false);
+        queued.put(task.taskId, task);
+    }
+
+    /**
+     * Release the slot of a task, must be invoked when the task is finished no matter it
+     * succeeded or not, calling it more than once is harmless.
+     * @param taskId Task ID
+     */
+    static void finish(String taskId) {
+        synchronized (queues) {
+            String host = running.remove(taskId);
+            if(host == null)
+                return;
+            int count = runningPerHost.get(host) - 1;
+            if(count == 0)
+                runningPerHost.remove(host);
+            else
+                runningPerHost.put(host, count);
+        }
+        promote();
+    }
+
+    /**
+     * Remove a task which is still waiting in queue.
+     * @param taskId Task ID
+     * @return The removed task, null if it's not queued.
+     */
+    static RNFetchBlobReq cancel(String taskId) {
+        synchronized (queues) {
+            RNFetchBlobReq task = queued.remove(taskId);
+            if(task != null)
+                queues.get(task.priority.ordinal()).remove(task);
+            return task;
+        }
+    }
+
+    /**
+     * Move a queued task to another priority class.
+     * @param taskId Task ID
+     * @param priority New priority
+     * @return False if the task is not queued, it's either running or finished.
+     */
+    static boolean setPriority(String taskId, Priority priority) {
+        synchronized (queues) {
+            RNFetchBlobReq task = cancel(taskId);
+            if(task == null)
+                return false;
+            task.priority = priority;
+            enqueue(task);
+            RNFetchBlobTaskRegistry.Entry entry = RNFetchBlobTaskRegistry.get(taskId);
+            if(entry != null)
+                entry.priority = priority;
+        }
+        promote();
+        return true;
+    }
+
+    /**
+     * Change in-flight limits, queued tasks are started when the limits are raised.
+     * @param max Max number of in-flight tasks
+     * @param maxPerHost Max number of in-flight tasks of a host
+     */
+    static void setLimits(int max, int maxPerHost) {
+        synchronized (queues) {
+            if(max > 0)
+                maxRequests = max;
+            if(maxPerHost > 0)
+                maxRequestsPerHost = maxPerHost;
+        }
+        promote();
+    }
+
+    /**
+     * Get number of queued tasks of each priority class and number of in-flight tasks.
+     * @return Queue depth information
+     */
+    static WritableMap getQueueDepth() {
+        WritableMap result = Arguments.createMap();
+        synchronized (queues) {
+            result.putInt("interactive", queues.get(Priority.Interactive.ordinal()).size);
+            result.putInt("normal", queues.get(Priority.Normal.ordinal()).size);
+            result.putInt("background", queues.get(Priority.Background.ordinal()).size);
+            result.putInt("running", running.size());
+            result.putInt("maxRequests", maxRequests);
+            result.putInt("maxRequestsPerHost", maxRequestsPerHost);
+        }
+        return result;
+    }
+
+    /**
+     * Start as many queued tasks as the limits allow.
+     */
+    private static void promote() {
+        ArrayList<RNFetchBlobReq> admitted = new ArrayList<>();
+        synchronized (queues) {
+            while (running.size() < maxRequests) {
+                RNFetchBlobReq task = next();
+                if(task == null)
+                    break;
+                RNFetchBlobMemoryBudget.admit(task);
+                String host = task.host;
+                running.put(task.taskId, host);
+                Integer count = runningPerHost.get(host);
+                runningPerHost.put(host, count == null ? 1 : count + 1);
+                admitted.add(task);
+            }
+        }
+        for(int i = 0; i < admitted.size(); i++) {
+            if(RNFetchBlobExecutors.http.execute(admitted.get(i)))
+                continue;
+            // the worker pool is full, the rest wait in queue until a running task finishes
+            synchronized (queues) {
+                for(int j = admitted.size() - 1; j >= i; j--) {
+                    requeue(admitted.get(j));
+                }
+            }
+            break;
+        }
+    }
+
+    /**
+     * Put an admitted task back to the head of its queue and release its slot.
+     */
+    private static void requeue(RNFetchBlobReq task) {
+        String host = running.remove(task.taskId);
+        if(host != null) {
+            int count = runningPerHost.get(host) - 1;
+            if(count == 0)
+                runningPerHost.remove(host);
+            else
+                runningPerHost.put(host, count);
+        }
+        queues.get(task.priority.ordinal()).add(task, true);
+        queued.put(task.taskId, task);
+    }
+
+    /**
+     * Take the next task to run. A class is served while it has credits, all credits are
+     * refilled when every class which has runnable tasks has used up its credits.
+     * @return The next task, null if no task can be started.
+     */
+    private static RNFetchBlobReq next() {
+        for(int round = 0; round < 2; round++) {
+            boolean runnable = false;
+            for(int i = 0; i < queues.size(); i++) {
+                RNFetchBlobReq task = queues.get(i).peekRunnable();
+                if(task == null)
+                    continue;
+                runnable = true;
+                if(credits[i] > 0) {
+                    credits[i]--;
+                    queues.get(i).remove(task);
+                    queued.remove(task.taskId);
+                    return task;
+                }
+            }
+            if(!runnable)
+                return null;
+            for(int i = 0; i < credits.length; i++) {
+                credits[i] = weights[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Memory of in-memory responses has been returned, tasks which wait for it may start.
+     */
+    static void onMemoryReleased() {
+        promote();
+    }
+
+    /**
+     * @return Number of queued tasks whose response is kept in memory and which can't be
+     * admitted until memory is released.
+     */
+    static int getMemoryWaiting() {
+        int count = 0;
+        synchronized (queues) {
+            for(TaskQueue queue : queues) {
+                for(HostTasks tasks : queue.hosts.values()) {
+                    for(RNFetchBlobReq task : tasks.inMemory) {
+                        if(!RNFetchBlobMemoryBudget.canAdmit(task))
+                            count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Queued tasks of one host. Tasks whose response is kept in memory are kept apart, they can
+     * be held by the memory budget while other tasks of the host start.
+     */
+    private static class HostTasks {
+        final LinkedList<RNFetchBlobReq> tasks = new LinkedList<>();
+        // admitted tasks which have been put back hold a reservation and come first
+        final LinkedList<RNFetchBlobReq> inMemory = new LinkedList<>();
+
+        LinkedList<RNFetchBlobReq> listOf(RNFetchBlobReq task) {
+            return task.responseType == RNFetchBlobReq.ResponseType.KeepInMemory ? inMemory : tasks;
+        }
+
+        boolean isEmpty() {
+            return tasks.isEmpty() && inMemory.isEmpty();
+        }
+    }
+
+    /**
+     * Queue of a priority class, indexed by host so admission only looks at the first tasks of
+     * every host instead of every queued task. Tasks are served in the order they are queued.
+     */
+    private static class TaskQueue {
+        final LinkedHashMap<String, HostTasks> hosts = new LinkedHashMap<>();
+        int size = 0;
+
+        /**
+         * @param first Add the task to the head of its host's tasks, for a task which is put
+         *              back after it has been taken.
+         */
+        void add(RNFetchBlobReq task, boolean first) {
+            HostTasks tasks = hosts.get(task.host);
+            if(tasks == null) {
+                tasks = new HostTasks();
+                hosts.put(task.host, tasks);
+            }
+            if(first)
+                tasks.listOf(task).addFirst(task);
+            else
+                tasks.listOf(task).addLast(task);
+            size++;
+        }
+
+        void remove(RNFetchBlobReq task) {
+            HostTasks tasks = hosts.get(task.host);
+            if(tasks == null || !tasks.listOf(task).remove(task))
+                return;
+            if(tasks.isEmpty())
+                hosts.remove(task.host);
+            size--;
+        }
+
+        /**
+         * Find the earliest queued task whose host has not reached the per host limit, and
+         * which fits in the memory budget.
+         */
+        RNFetchBlobReq peekRunnable() {
+            RNFetchBlobReq first = null;
+            for(Map.Entry<String, HostTasks> entry : hosts.entrySet()) {
+                Integer count = runningPerHost.get(entry.getKey());
+                if(count != null && count >= maxRequestsPerHost)
+                    continue;
+                RNFetchBlobReq task = entry.getValue().tasks.peekFirst();
+                if(task != null && (first == null || task.queueSeq < first.queueSeq))
+                    first = task;
+                // tasks after the first one have no reservation, they can't start either
+                task = entry.getValue().inMemory.peekFirst();
+                if(task != null && (first == null || task.queueSeq < first.queueSeq) && RNFetchBlobMemoryBudget.canAdmit(task))
+                    first = task;
+            }
+            return first;
+        }
+    }
+
+    private static String getHost(String url) {
+        HttpUrl parsed = url == null ? null : HttpUrl.parse(url);
+        return parsed == null ? "" : parsed.host();
+    }
+
+}
@@ -0,0 +1,358 @@
+package com.RNFetchBlob;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+/**
+ * Download a file using multiple connections. The file is split into pieces of
+ * `segmentSize` bytes which are fetched by Range requests, every piece is written to its offset
+ * of the destination file. The number of connections starts from one and grows as long as a new
+ * connection doesn't reduce the throughput of the others, up to `segments` connections.
+ */
+public class RNFetchBlobSegmentedDownload {
+
+    static HashMap<String, RNFetchBlobSegmentedDownload> segmentedTasks = new HashMap<>();
+
+    RNFetchBlobReq task;
+    OkHttpClient client;
+    Request request;
+    Response probe;
+    FileChannel channel;
+    RandomAccessFile file;
+    long total;
+    long pieceSize;
+    int pieceCount;
+    int maxConnections;
+    int connections = 0;
+    double baseline = 0;
+    // read by connections without the lock, set under the lock by fail()
+    volatile boolean failed = false;
+    final AtomicLong nextOffset = new AtomicLong(0);
+    final AtomicLong bytesWritten = new AtomicLong(0);
+    final AtomicInteger piecesDone = new AtomicInteger(0);
+    final HashSet<Call> calls = new HashSet<>();
+
+    RNFetchBlobSegmentedDownload(RNFetchBlobReq task, OkHttpClient client, Request request) {
+        this.task = task;
+        this.client = client;
+        // pieces must be byte exact, so transparent gzip is disabled
+        this.request = request.newBuilder()
+                .header("Accept-Encoding", "identity")
+                .tag(null)
+                .build();
+        this.pieceSize = Math.max(task.options.segmentSize, RNFetchBlobBufferPool.BUFFER_SIZE);
+        this.maxConnections = task.options.segments;
+    }
+
+    /**
+     * Check if segmented download mode should be used for the task.
+     * @param task The HTTP task
+     * @return True when the task downloads to a file and segmented mode is enabled, resumable
+     * downloads are written sequentially and revalidation of cached responses is a single
+     * conditional request, they never use this mode. Neither do tasks which compute digests,
+     * since segments arrive out of order, and tasks which retry, since retries resume the
+     * download sequentially.
+     */
+    static boolean isSupported(RNFetchBlobReq task) {
+        return task.options.segments > 1
+                && !task.options.resumable
+                && task.responseType == RNFetchBlobReq.ResponseType.FileStorage
+                && task.method.equalsIgnoreCase("get")
+                && task.options.overwrite
+                && task.cacheEntry == null
+                && task.hasher == null
+                && task.options.retry == null;
+    }
+
+    /**
+     * Cancel segmented download task
+     * @param taskId Task ID
+     * @return True if the task is a segmented download task.
+     */
+    static boolean cancel(String taskId) {
+        RNFetchBlobSegmentedDownload download;
+        synchronized (segmentedTasks) {
+            download = segmentedTasks.remove(taskId);
+        }
+        if(download == null)
+            return false;
+        download.fail("Canceled");
+        return true;
+    }
+
+    /**
+     * Probe the server for Range request support, start downloading pieces when it's supported,
+     * otherwise fall back to single connection download.
+     */
+    void start() {
+        synchronized (segmentedTasks) {
+            segmentedTasks.put(task.taskId, this);
+        }
+        Call call = client.newCall(request.newBuilder().head().build());
+        track(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                untrack(call);
+                fallback();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                untrack(call);
+                response.close();
+                probe = response;
+                long length = -1;
+                try {
+                    length = Long.parseLong(response.header("Content-Length", "-1"));
+                } catch(NumberFormatException ignored) {
+                }
+                boolean acceptRanges = "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+                // small files are not worth more connections
+                if(!response.isSuccessful() || !acceptRanges || length < pieceSize * 2) {
+                    fallback();
+                    return;
+                }
+                total = length;
+                pieceCount = (int) ((total + pieceSize - 1) / pieceSize);
+                String error = null;
+                synchronized (RNFetchBlobSegmentedDownload.this) {
+                    // the task has been cancelled while probing, destination is left untouched
+                    if(failed)
+                        return;
+                    try {
+                        String path = task.destPath;
+                        File f = new File(path);
+                        File parent = f.getParentFile();
+                        if(parent != null && !parent.exists() && !parent.mkdirs()){
+                            throw new IOException("Couldn't create dir: " + parent);
+                        }
+                        file = new RandomAccessFile(f, "rw");
+                        file.setLength(total);
+                        channel = file.getChannel();
+                    } catch (IOException e) {
+                        error = e.getLocalizedMessage();
+                    }
+                }
+                // the file is closed by fail()
+                if(error != null) {
+                    fail("RNFetchBlob failed to create segmented download destination : " + error);
+                    return;
+                }
+                startConnection();
+            }
+        });
+    }
+
+    /**
+     * The server does not support Range requests, download the file using one connection.
+     */
+    private void fallback() {
+        synchronized (segmentedTasks) {
+            if(segmentedTasks.remove(task.taskId) == null)
+                return;
+        }
+        task.enqueue(client, task.request);
+    }
+
+    /**
+     * Open a new connection, which keeps downloading pieces until there's no piece left.
+     */
+    private void startConnection() {
+        synchronized (this) {
+            connections++;
+        }
+        if(!downloadNextPiece())
+            onConnectionEnd();
+    }
+
+    private synchronized void onConnectionEnd() {
+        connections--;
+    }
+
+    /**
+     * Claim next piece which has not been downloaded yet and download it.
+     * @return False when all pieces are claimed.
+     */
+    private boolean downloadNextPiece() {
+        if(failed)
+            return false;
+        final long start = nextOffset.getAndAdd(pieceSize);
+        if(start >= total)
+            return false;
+        final long end = Math.min(start + pieceSize, total) - 1;
+        Request piece = request.newBuilder()
+                .header("Range", "bytes=" + start + "-" + end)
+                .build();
+        final long begin = System.currentTimeMillis();
+        Call call = client.newCall(piece);
+        track(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                untrack(call);
+                onConnectionEnd();
+                fail(e.getLocalizedMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try {
+                    if(response.code() != 206)
+                        throw new IOException("server responded status " + response.code() + " to range request");
+                    writePiece(response.body().source(), start, end - start + 1);
+                } catch(IOException e) {
+                    onConnectionEnd();
+                    fail(e.getLocalizedMessage());
+                    return;
+                } finally {
+                    response.close();
+                    untrack(call);
+                }
+                if(piecesDone.incrementAndGet() == pieceCount) {
+                    onConnectionEnd();
+                    complete();
+                    return;
+                }
+                if(adapt(end - start + 1, System.currentTimeMillis() - begin) && !downloadNextPiece())
+                    onConnectionEnd();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Write response data of a piece to its offset of destination file
+     * @param source Response body source
+     * @param offset Offset of the piece
+     * @param length Length of the piece
+     * @throws IOException
+     */
+    private void writePiece(BufferedSource source, long offset, long length) throws IOException {
+        byte[] buffer = RNFetchBlobBufferPool.acquire();
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        try {
+            long written = 0;
+            while (written < length) {
+                int read = source.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+                if(read == -1)
+                    throw new IOException("unexpected end of stream at offset " + (offset + written));
+                wrapped.clear();
+                wrapped.limit(read);
+                while (wrapped.hasRemaining()) {
+                    written += channel.write(wrapped, offset + written);
+                }
+                emitProgress(bytesWritten.addAndGet(read));
+                RNFetchBlobMetrics.onBytesIn(read);
+                RNFetchBlobBandwidth.consume(task.taskId, read);
+            }
+        } finally {
+            RNFetchBlobBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Decide how many connections should be used according to the throughput of the connection
+     * which just finished a piece. When a connection is as fast as a single connection, the link
+     * is not saturated yet and one more connection is added. When it's much slower the
+     * connection is retired.
+     * @param bytes Size of the piece
+     * @param elapsed Time used to download the piece in milliseconds.
+     * @return False when the connection is retired.
+     */
+    private boolean adapt(long bytes, long elapsed) {
+        boolean grow = false;
+        synchronized (this) {
+            double throughput = bytes * 1000.0 / Math.max(elapsed, 1);
+            if(baseline == 0 || connections == 1)
+                baseline = Math.max(baseline, throughput);
+            if(throughput < baseline * 0.5 && connections > 1) {
+                connections--;
+                return false;
+            }
+            long remaining = pieceCount - nextOffset.get() / pieceSize;
+            if(throughput >= baseline * 0.75 && connections < maxConnections && remaining > connections)
+                grow = true;
+        }
+        if(grow)
+            startConnection();
+        return true;
+    }
+
+    private void complete() {
+        synchronized (segmentedTasks) {
+            segmentedTasks.remove(task.taskId);
+        }
+        try {
+            channel.force(false);
+            file.close();
+        } catch (IOException e) {
+            task.onSegmentedDownloadFailed("RNFetchBlob failed to close segmented download destination : " + e.getLocalizedMessage());
+            return;
+        }
+        task.onSegmentedDownloadComplete(probe);
+    }
+
+    /**
+     * Stop all connections, remove the incomplete destination and report error, only the first
+     * error is reported.
+     * @param message Error message
+     */
+    private void fail(String message) {
+        synchronized (this) {
+            if(failed)
+                return;
+            failed = true;
+        }
+        synchronized (segmentedTasks) {
+            segmentedTasks.remove(task.taskId);
+        }
+        synchronized (calls) {
+            for(Call call : calls) {
+                call.cancel();
+            }
+            calls.clear();
+        }
+        // the destination has been sized to the full length, a partial download is removed so
+        // it's never taken for a complete file
+        if(file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+            }
+            new File(task.destPath).delete();
+        }
+        task.onSegmentedDownloadFailed(message);
+    }
+
+    private void track(Call call) {
+        synchronized (calls) {
+            calls.add(call);
+        }
+    }
+
+    private void untrack(Call call) {
+        synchronized (calls) {
+            calls.remove(call);
+        }
+    }
+
+    private void emitProgress(long written) {
+        RNFetchBlobReq.emitProgressEvent(task.taskId, written, total);
+    }
+
+}
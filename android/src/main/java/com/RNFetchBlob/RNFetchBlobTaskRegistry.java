@@ -0,0 +1,250 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Call;
+
+/**
+ * Registry of HTTP tasks which have been submitted and not yet released. It's accessed by the
+ * bridge thread, scheduler, OkHttp dispatcher threads and transfer threads at the same time, so
+ * every entry is safe to read and update without holding a lock. An entry records the state,
+ * transferred bytes and timestamps of a task, and the call which performs it.
+ */
+public class RNFetchBlobTaskRegistry {
+
+    public enum State {
+        Queued,
+        Connecting,
+        Transferring,
+        Done,
+        Failed,
+        Cancelled
+    }
+
+    public static class Entry {
+        final String taskId;
+        final String method;
+        final String url;
+        volatile RNFetchBlobScheduler.Priority priority;
+        final long queuedAt;
+        volatile State state = State.Queued;
+        volatile long startTime;
+        volatile long firstByteTime;
+        volatile long bytesIn;
+        volatile long bytesOut;
+        volatile Call call;
+        volatile RNFetchBlobProgressConfig progressConfig;
+        volatile RNFetchBlobProgressConfig uploadProgressConfig;
+        // per task bandwidth cap, and if the task takes tokens from the global bucket, null
+        // means only background tasks do
+        volatile RNFetchBlobBandwidth.Bucket bucket;
+        volatile Boolean sharedBandwidth;
+
+        Entry(RNFetchBlobReq task) {
+            this.taskId = task.taskId;
+            this.method = task.method;
+            this.url = task.url;
+            this.priority = task.priority;
+            this.queuedAt = System.currentTimeMillis();
+            if(task.options.maxBandwidth > 0)
+                this.bucket = new RNFetchBlobBandwidth.Bucket(task.options.maxBandwidth);
+            this.sharedBandwidth = task.options.sharedBandwidth;
+        }
+
+        boolean isFinished() {
+            return state == State.Done || state == State.Failed || state == State.Cancelled;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Entry> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * Add a task to registry, the task's callback is wrapped so the outcome of the task is
+     * recorded when the callback is invoked.
+     * @param task HTTP task
+     */
+    static void register(RNFetchBlobReq task) {
+        final Entry entry = new Entry(task);
+        final Callback callback = task.callback;
+        task.callback = new Callback() {
+            @Override
+            public void invoke(Object... args) {
+                boolean failed = args.length > 0 && args[0] != null;
+                setState(entry, failed ? State.Failed : State.Done);
+                // progress of last frame is delivered before the outcome
+                RNFetchBlobProgressAggregator.remove(entry.taskId);
+                callback.invoke(args);
+            }
+        };
+        tasks.put(task.taskId, entry);
+        RNFetchBlobMetrics.tasksSubmitted.increment();
+    }
+
+    static Entry get(String taskId) {
+        return tasks.get(taskId);
+    }
+
+    static int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Remove a task from registry, it's invoked when all resources of the task are released.
+     * @param taskId Task ID
+     */
+    static void remove(String taskId) {
+        tasks.remove(taskId);
+    }
+
+    /**
+     * The task is taken by a worker thread.
+     * @param taskId Task ID
+     * @return False if the task has been cancelled before it starts.
+     */
+    static boolean start(String taskId) {
+        Entry entry = tasks.get(taskId);
+        if(entry == null)
+            return true;
+        entry.startTime = System.currentTimeMillis();
+        return setState(entry, State.Connecting);
+    }
+
+    /**
+     * Attach the call which performs the task, the call is cancelled immediately when the task
+     * has been cancelled before the call is created.
+     * @param taskId Task ID
+     * @param call OkHttp call
+     */
+    static void setCall(String taskId, Call call) {
+        Entry entry = tasks.get(taskId);
+        if(entry == null)
+            return;
+        entry.call = call;
+        if(entry.state == State.Cancelled)
+            call.cancel();
+    }
+
+    /**
+     * Mark a task cancelled, its call is not touched since the call may be shared with other
+     * tasks.
+     * @param taskId Task ID
+     */
+    static void markCancelled(String taskId) {
+        Entry entry = tasks.get(taskId);
+        if(entry != null)
+            setState(entry, State.Cancelled);
+    }
+
+    /**
+     * Mark a task cancelled and cancel its call.
+     * @param taskId Task ID
+     */
+    static void cancel(String taskId) {
+        Entry entry = tasks.get(taskId);
+        if(entry == null)
+            return;
+        setState(entry, State.Cancelled);
+        Call call = entry.call;
+        if(call != null)
+            call.cancel();
+    }
+
+    /**
+     * Check if a task has been cancelled and its call has been cancelled, a task which is
+     * detached from a shared transfer does not count since the transfer goes on for others.
+     * @param taskId Task ID
+     * @return True if the task has been cancelled.
+     */
+    static boolean isCancelled(String taskId) {
+        Entry entry = tasks.get(taskId);
+        if(entry == null || entry.state != State.Cancelled)
+            return false;
+        Call call = entry.call;
+        return call == null || call.isCanceled();
+    }
+
+    /**
+     * Record that response headers of the task have arrived.
+     * @param taskId Task ID
+     */
+    static void onFirstByte(String taskId) {
+        Entry entry = tasks.get(taskId);
+        if(entry == null || entry.firstByteTime != 0)
+            return;
+        entry.firstByteTime = System.currentTimeMillis();
+        if(entry.startTime != 0)
+            RNFetchBlobMetrics.timeToFirstByte.record(entry.firstByteTime - entry.startTime);
+        setState(entry, State.Transferring);
+    }
+
+    /**
+     * Update number of bytes received by a task, this is invoked by transfer threads.
+     * @param taskId Task ID
+     * @param bytes Number of bytes received so far
+     */
+    static void onBytesIn(String taskId, long bytes) {
+        Entry entry = tasks.get(taskId);
+        if(entry == null)
+            return;
+        if(entry.firstByteTime == 0)
+            onFirstByte(taskId);
+        entry.bytesIn = bytes;
+    }
+
+    /**
+     * Update number of bytes sent by a task, this is invoked by transfer threads.
+     * @param taskId Task ID
+     * @param bytes Number of bytes sent so far
+     */
+    static void onBytesOut(String taskId, long bytes) {
+        Entry entry = tasks.get(taskId);
+        if(entry != null)
+            entry.bytesOut = bytes;
+    }
+
+    /**
+     * Get information of every task in registry.
+     * @return Array of task information
+     */
+    static WritableArray getActiveTasks() {
+        WritableArray result = Arguments.createArray();
+        for(Entry entry : tasks.values()) {
+            WritableMap info = Arguments.createMap();
+            info.putString("taskId", entry.taskId);
+            info.putString("method", entry.method);
+            info.putString("url", entry.url);
+            info.putString("priority", entry.priority.name().toLowerCase());
+            info.putString("state", entry.state.name().toLowerCase());
+            info.putDouble("bytesIn", entry.bytesIn);
+            info.putDouble("bytesOut", entry.bytesOut);
+            info.putDouble("queuedAt", entry.queuedAt);
+            info.putDouble("startTime", entry.startTime);
+            info.putDouble("firstByteTime", entry.firstByteTime);
+            RNFetchBlobBandwidth.Bucket bucket = entry.bucket;
+            info.putDouble("maxBandwidth", bucket != null ? bucket.getRate() : 0);
+            result.pushMap(info);
+        }
+        return result;
+    }
+
+    /**
+     * Change state of a task, a finished task keeps its state.
+     * @return False if the task has already finished.
+     */
+    private static boolean setState(Entry entry, State state) {
+        synchronized (entry) {
+            if(entry.isFinished())
+                return false;
+            entry.state = state;
+        }
+        if(state == State.Done || state == State.Failed || state == State.Cancelled)
+            RNFetchBlobMetrics.onTaskFinished(state, entry.queuedAt);
+        return true;
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.RNFetchBlob;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Records how long each phase of a call takes, it's attached to every call of a task by the
+ * shared clients. The phases which are known when response headers arrive are reported in
+ * `timings` of response information, and complete timings, including the transfer of the
+ * response body, are emitted when the call ends, except for tasks of a batch which report them
+ * in their batch results. Phases of redirects are added up.
+ */
+public class RNFetchBlobTimings extends EventListener {
+
+    /**
+     * Create a listener for every call of an HTTP task, the listener is kept by the task.
+     */
+    static final EventListener.Factory factory = new EventListener.Factory() {
+        @Override
+        public EventListener create(Call call) {
+            Object tag = call.request().tag();
+            if(!(tag instanceof RNFetchBlobReq))
+                return EventListener.NONE;
+            RNFetchBlobReq task = (RNFetchBlobReq) tag;
+            RNFetchBlobTimings timings = new RNFetchBlobTimings(task);
+            task.timings = timings;
+            return timings;
+        }
+    };
+
+    private final String taskId;
+    // tasks of a batch report timings with their results instead of events
+    private final boolean batched;
+    // durations in nanoseconds
+    private long dns, connect, tls, requestWrite, firstByte, transfer, total;
+    // start of the phase in progress
+    private long callStart, dnsStart, connectStart, tlsStart, requestStart, requestEnd, responseStart;
+    private long bytesSent = 0;
+    private long bytesReceived = 0;
+    private int connections = 0;
+    private boolean reused = false;
+    private String protocol;
+    private String tlsVersion;
+
+    RNFetchBlobTimings(RNFetchBlobReq task) {
+        this.taskId = task.taskId;
+        this.batched = task.batch != null;
+    }
+
+    /**
+     * Get the timings recorded so far, durations are in milliseconds.
+     */
+    synchronized WritableMap toMap() {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("dns", toMillis(dns));
+        map.putDouble("connect", toMillis(connect));
+        map.putDouble("tls", toMillis(tls));
+        map.putDouble("requestWrite", toMillis(requestWrite));
+        map.putDouble("timeToFirstByte", toMillis(firstByte));
+        map.putDouble("transfer", toMillis(transfer));
+        map.putDouble("total", toMillis(total > 0 ? total : System.nanoTime() - callStart));
+        map.putDouble("bytesSent", bytesSent);
+        map.putDouble("bytesReceived", bytesReceived);
+        map.putBoolean("connectionReused", reused);
+        map.putString("protocol", protocol);
+        map.putString("tlsVersion", tlsVersion);
+        return map;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    @Override
+    public synchronized void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        dns += System.nanoTime() - dnsStart;
+    }
+
+    @Override
+    public synchronized void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+        connections++;
+    }
+
+    @Override
+    public synchronized void secureConnectStart(Call call) {
+        tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void secureConnectEnd(Call call, Handshake handshake) {
+        tls += System.nanoTime() - tlsStart;
+        if(handshake != null)
+            tlsVersion = handshake.tlsVersion().javaName();
+    }
+
+    @Override
+    public synchronized void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        connect += System.nanoTime() - connectStart;
+    }
+
+    @Override
+    public synchronized void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+        connect += System.nanoTime() - connectStart;
+    }
+
+    @Override
+    public synchronized void connectionAcquired(Call call, Connection connection) {
+        // a pooled connection is acquired without connecting
+        if(connections == 0)
+            reused = true;
+        protocol = connection.protocol().toString();
+    }
+
+    @Override
+    public synchronized void requestHeadersStart(Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void requestHeadersEnd(Call call, Request request) {
+        requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void requestBodyEnd(Call call, long byteCount) {
+        requestEnd = System.nanoTime();
+        bytesSent += byteCount;
+    }
+
+    @Override
+    public synchronized void responseHeadersStart(Call call) {
+        responseStart = System.nanoTime();
+        requestWrite += requestEnd - requestStart;
+        firstByte += responseStart - requestEnd;
+    }
+
+    @Override
+    public synchronized void responseHeadersEnd(Call call, Response response) {
+        // transfer of the body starts once the headers are read
+        responseStart = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void responseBodyEnd(Call call, long byteCount) {
+        transfer += System.nanoTime() - responseStart;
+        bytesReceived += byteCount;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        synchronized (this) {
+            total = System.nanoTime() - callStart;
+        }
+        emit();
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        synchronized (this) {
+            total = System.nanoTime() - callStart;
+        }
+        emit();
+    }
+
+    /**
+     * Send complete timings to every task which shares the call, a task of a batch gets its
+     * timings in its batch result.
+     */
+    private void emit() {
+        for(String id : RNFetchBlobCoalescer.getMembers(taskId)) {
+            if(batched && id.equals(taskId))
+                continue;
+            WritableMap args = Arguments.createMap();
+            args.putString("taskId", id);
+            args.putMap("timings", toMap());
+            RNFetchBlob.RCTContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(RNFetchBlobConst.EVENT_TIMINGS, args);
+        }
+    }
+
+}
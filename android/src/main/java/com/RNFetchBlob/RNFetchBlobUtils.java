@@ -52,34 +52,47 @@ public class RNFetchBlobUtils {
                 .emit(RNFetchBlobConst.EVENT_MESSAGE, args);
     }
 
-    public static OkHttpClient.Builder getUnsafeOkHttpClient(OkHttpClient client) {
-        try {
-            // Create a trust manager that does not validate certificate chains
-            final TrustManager[] trustAllCerts = new TrustManager[]{
-                    new X509TrustManager() {
-                        @Override
-                        public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {
-                        }
-
-                        @Override
-                        public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {
-                        }
-
-                        @Override
-                        public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                            return new java.security.cert.X509Certificate[]{};
-                        }
+    private static SSLSocketFactory unsafeSocketFactory;
+
+    /**
+     * Get the SSL socket factory which trusts all certificates, the SSL context is only created
+     * once and shared by all clients.
+     * @return SSL socket factory with an all-trusting trust manager
+     * @throws Exception
+     */
+    private static synchronized SSLSocketFactory getUnsafeSocketFactory() throws Exception {
+        if(unsafeSocketFactory != null)
+            return unsafeSocketFactory;
+        // Create a trust manager that does not validate certificate chains
+        final TrustManager[] trustAllCerts = new TrustManager[]{
+                new X509TrustManager() {
+                    @Override
+                    public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {
                     }
-            };
 
-            // Install the all-trusting trust manager
-            final SSLContext sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            // Create an ssl socket factory with our all-trusting manager
-            final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
+                    @Override
+                    public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {
+                    }
 
+                    @Override
+                    public java.security.cert.X509Certificate[] getAcceptedIssuers() {
+                        return new java.security.cert.X509Certificate[]{};
+                    }
+                }
+        };
+
+        // Install the all-trusting trust manager
+        final SSLContext sslContext = SSLContext.getInstance("SSL");
+        sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
+        // Create an ssl socket factory with our all-trusting manager
+        unsafeSocketFactory = sslContext.getSocketFactory();
+        return unsafeSocketFactory;
+    }
+
+    public static OkHttpClient.Builder getUnsafeOkHttpClient(OkHttpClient client) {
+        try {
             OkHttpClient.Builder builder = client.newBuilder();
-            builder.sslSocketFactory(sslSocketFactory);
+            builder.sslSocketFactory(getUnsafeSocketFactory());
             builder.hostnameVerifier(new HostnameVerifier() {
                 @Override
                 public boolean verify(String hostname, SSLSession session) {
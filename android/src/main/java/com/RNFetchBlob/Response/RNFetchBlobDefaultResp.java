@@ -1,7 +1,11 @@
 package com.RNFetchBlob.Response;
 
+import com.RNFetchBlob.RNFetchBlobBandwidth;
 import com.RNFetchBlob.RNFetchBlobConst;
+import com.RNFetchBlob.RNFetchBlobHasher;
+import com.RNFetchBlob.RNFetchBlobMetrics;
 import com.RNFetchBlob.RNFetchBlobProgressConfig;
+import com.RNFetchBlob.RNFetchBlobRecordFramer;
 import com.RNFetchBlob.RNFetchBlobReq;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
@@ -28,6 +32,10 @@ public class RNFetchBlobDefaultResp extends ResponseBody {
     ReactApplicationContext rctContext;
     ResponseBody originalBody;
     boolean isIncrement = false;
+    RNFetchBlobHasher hasher;
+    RNFetchBlobRecordFramer framer;
+    // if a chunk has been emitted in increment mode
+    volatile boolean delivered = false;
 
     public RNFetchBlobDefaultResp(ReactApplicationContext ctx, String taskId, ResponseBody body, boolean isIncrement) {
         this.rctContext = ctx;
@@ -36,6 +44,26 @@ public class RNFetchBlobDefaultResp extends ResponseBody {
         this.isIncrement = isIncrement;
     }
 
+    /**
+     * Compute digests of the response body while it's being read.
+     * @param hasher Hasher, can be null.
+     * @return object itself
+     */
+    public RNFetchBlobDefaultResp setHasher(RNFetchBlobHasher hasher) {
+        this.hasher = hasher;
+        return this;
+    }
+
+    /**
+     * Split the response body into records while it's being read.
+     * @param framer Record framer, can be null.
+     * @return object itself
+     */
+    public RNFetchBlobDefaultResp setFramer(RNFetchBlobRecordFramer framer) {
+        this.framer = framer;
+        return this;
+    }
+
     @Override
     public MediaType contentType() {
         return originalBody.contentType();
@@ -51,10 +79,28 @@ public class RNFetchBlobDefaultResp extends ResponseBody {
         return Okio.buffer(new ProgressReportingSource(originalBody.source()));
     }
 
+    /**
+     * @return True if a chunk has been emitted in increment mode, it can't be taken back.
+     */
+    public boolean hasDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Release the connection of the original response, a body which is discarded before it's
+     * read, like the response of an attempt which is retried, is closed here.
+     */
+    @Override
+    public void close() {
+        originalBody.close();
+    }
+
     private class ProgressReportingSource implements Source {
 
         BufferedSource mOriginalSource;
         long bytesRead = 0;
+        // bytes received since last chunk was reported in increment mode
+        Buffer increment = new Buffer();
 
         ProgressReportingSource(BufferedSource originalSource) {
             mOriginalSource = originalSource;
@@ -65,19 +111,38 @@ public class RNFetchBlobDefaultResp extends ResponseBody {
 
             long read =  mOriginalSource.read(sink, byteCount);
             bytesRead += read > 0 ? read : 0;
+            // hash the bytes which have just been appended to sink
+            if(hasher != null && read > 0)
+                hasher.update(sink, sink.size() - read, read);
+            if(read > 0) {
+                RNFetchBlobMetrics.onBytesIn(read);
+                RNFetchBlobBandwidth.consume(mTaskId, read);
+            }
+            if(framer != null) {
+                if(read > 0)
+                    framer.write(sink, sink.size() - read, read);
+                else if(read == -1)
+                    framer.finish();
+            }
+            if(!isIncrement) {
+                RNFetchBlobReq.emitProgressEvent(mTaskId, bytesRead, contentLength());
+                return read;
+            }
             RNFetchBlobProgressConfig reportConfig = RNFetchBlobReq.getReportProgress(mTaskId);
+            // copy the bytes, the sink belongs to the reader of the response
+            if(reportConfig != null && read > 0)
+                sink.copyTo(increment, sink.size() - read, read);
             long cLen = contentLength();
-            if(reportConfig != null && cLen != 0 && reportConfig.shouldReport(bytesRead/contentLength())) {
+            if(reportConfig != null && cLen != 0 && reportConfig.shouldReport((float) bytesRead / cLen)) {
                 WritableMap args = Arguments.createMap();
                 args.putString("taskId", mTaskId);
                 args.putString("written", String.valueOf(bytesRead));
                 args.putString("total", String.valueOf(contentLength()));
-                if(isIncrement) {
-                    args.putString("chunk", sink.readString(Charset.defaultCharset()));
-                }
-                else {
-                    args.putString("chunk", "");
-                }
+                // a character split by the chunk is reported with next chunk
+                long complete = RNFetchBlobRecordFramer.getCompleteUtf8Size(increment);
+                if(complete > 0)
+                    delivered = true;
+                args.putString("chunk", increment.readString(complete, Charset.forName("UTF-8")));
 
                 rctContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
                         .emit(RNFetchBlobConst.EVENT_PROGRESS, args);
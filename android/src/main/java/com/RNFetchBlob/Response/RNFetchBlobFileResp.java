@@ -2,17 +2,19 @@ package com.RNFetchBlob.Response;
 
 import android.util.Log;
 
-import com.RNFetchBlob.RNFetchBlobConst;
-import com.RNFetchBlob.RNFetchBlobProgressConfig;
+import com.RNFetchBlob.RNFetchBlobBandwidth;
+import com.RNFetchBlob.RNFetchBlobBufferPool;
+import com.RNFetchBlob.RNFetchBlobHasher;
+import com.RNFetchBlob.RNFetchBlobJournal;
+import com.RNFetchBlob.RNFetchBlobMetrics;
 import com.RNFetchBlob.RNFetchBlobReq;
-import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import okhttp3.MediaType;
 import okhttp3.ResponseBody;
@@ -29,16 +31,26 @@ public class RNFetchBlobFileResp extends ResponseBody {
 
     String mTaskId;
     ResponseBody originalBody;
+    BufferedSource originalSource;
     String mPath;
     long bytesDownloaded = 0;
     ReactApplicationContext rctContext;
     FileOutputStream ofStream;
+    FileChannel channel;
+    RNFetchBlobJournal.Entry journal;
+    long journalOffset = 0;
+    // pooled transfer buffer, acquired on first read and returned when the body is closed
+    byte[] buffer;
+    ByteBuffer wrappedBuffer;
+    boolean closed = false;
+    RNFetchBlobHasher hasher;
 
     public RNFetchBlobFileResp(ReactApplicationContext ctx, String taskId, ResponseBody body, String path, boolean overwrite) throws IOException {
         super();
         this.rctContext = ctx;
         this.mTaskId = taskId;
         this.originalBody = body;
+        this.originalSource = body.source();
         assert path != null;
         this.mPath = path;
         if (path != null) {
@@ -55,6 +67,43 @@ public class RNFetchBlobFileResp extends ResponseBody {
             if(f.exists() == false)
                 f.createNewFile();
             ofStream = new FileOutputStream(new File(path), appendToExistingFile);
+            channel = ofStream.getChannel();
+        }
+    }
+
+    /**
+     * Record written bytes to download journal, so that the download can be resumed.
+     * @param journal Journal entry of the download, its offset is the size of existing content.
+     * @return object itself
+     */
+    public RNFetchBlobFileResp setJournal(RNFetchBlobJournal.Entry journal) {
+        this.journal = journal;
+        this.journalOffset = journal != null ? journal.offset : 0;
+        return this;
+    }
+
+    /**
+     * Compute digests of the response body while it's being written.
+     * @param hasher Hasher, can be null.
+     * @return object itself
+     */
+    public RNFetchBlobFileResp setHasher(RNFetchBlobHasher hasher) {
+        this.hasher = hasher;
+        return this;
+    }
+
+    /**
+     * Read the response until the end, the data is written to destination file while reading.
+     * @throws IOException
+     */
+    public void drain() throws IOException {
+        try {
+            while (transfer(null, RNFetchBlobBufferPool.BUFFER_SIZE) != -1) {
+            }
+        } finally {
+            close();
+            if(journal != null)
+                RNFetchBlobJournal.save(journal);
         }
     }
 
@@ -74,40 +123,71 @@ public class RNFetchBlobFileResp extends ResponseBody {
         return Okio.buffer(countable);
     }
 
+    @Override
+    public void close() {
+        if(closed)
+            return;
+        closed = true;
+        try {
+            ofStream.close();
+        } catch (IOException ignored) {
+        }
+        originalBody.close();
+        RNFetchBlobBufferPool.release(buffer);
+        buffer = null;
+    }
+
+    /**
+     * Move data from response body to destination file through the pooled buffer, nothing is
+     * allocated per read.
+     * @param sink The buffer which also receives the data, can be null.
+     * @param byteCount Max number of bytes to read
+     * @return Number of bytes read, -1 at the end of response.
+     * @throws IOException
+     */
+    private long transfer(Buffer sink, long byteCount) throws IOException {
+        if(closed)
+            throw new IOException("closed");
+        if(buffer == null) {
+            buffer = RNFetchBlobBufferPool.acquire();
+            wrappedBuffer = ByteBuffer.wrap(buffer);
+        }
+        int read = originalSource.read(buffer, 0, (int) Math.min(byteCount, buffer.length));
+        if(read == -1)
+            return -1;
+        wrappedBuffer.clear();
+        wrappedBuffer.limit(read);
+        while (wrappedBuffer.hasRemaining()) {
+            channel.write(wrappedBuffer);
+        }
+        if(sink != null)
+            sink.write(buffer, 0, read);
+        if(hasher != null)
+            hasher.update(buffer, 0, read);
+        bytesDownloaded += read;
+        if(journal != null)
+            journal.checkpoint(journalOffset + bytesDownloaded);
+        RNFetchBlobReq.emitProgressEvent(mTaskId, bytesDownloaded, contentLength());
+        RNFetchBlobMetrics.onBytesIn(read);
+        RNFetchBlobBandwidth.consume(mTaskId, read);
+        return read;
+    }
+
     private class ProgressReportingSource implements Source {
+
         @Override
         public long read(Buffer sink, long byteCount) throws IOException {
-            try {
-                byte[] bytes = new byte[(int) byteCount];
-                long read = originalBody.byteStream().read(bytes, 0, (int) byteCount);
-                bytesDownloaded += read > 0 ? read : 0;
-                if (read > 0) {
-                    ofStream.write(bytes, 0, (int) read);
-                }
-                RNFetchBlobProgressConfig reportConfig = RNFetchBlobReq.getReportProgress(mTaskId);
-                if (reportConfig != null && contentLength() != 0 &&reportConfig.shouldReport(bytesDownloaded / contentLength())) {
-                    WritableMap args = Arguments.createMap();
-                    args.putString("taskId", mTaskId);
-                    args.putString("written", String.valueOf(bytesDownloaded));
-                    args.putString("total", String.valueOf(contentLength()));
-                    rctContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                            .emit(RNFetchBlobConst.EVENT_PROGRESS, args);
-                }
-                return read;
-            } catch(Exception ex) {
-                return -1;
-            }
+            return transfer(sink, byteCount);
         }
 
         @Override
         public Timeout timeout() {
-            return null;
+            return originalSource.timeout();
         }
 
         @Override
         public void close() throws IOException {
-            ofStream.close();
-
+            RNFetchBlobFileResp.this.close();
         }
     }
 
@@ -0,0 +1,229 @@
+package com.RNFetchBlob.Response;
+
+import com.RNFetchBlob.RNFetchBlobBandwidth;
+import com.RNFetchBlob.RNFetchBlobBufferPool;
+import com.RNFetchBlob.RNFetchBlobConst;
+import com.RNFetchBlob.RNFetchBlobHasher;
+import com.RNFetchBlob.RNFetchBlobMetrics;
+import com.RNFetchBlob.RNFetchBlobReq;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Response body which extracts a zip archive into a directory while it's being downloaded, the
+ * archive itself is never written to storage. Download progress is reported on compressed
+ * bytes, and an event is emitted when each entry has been extracted.
+ */
+public class RNFetchBlobZipResp extends ResponseBody {
+
+    String mTaskId;
+    ResponseBody originalBody;
+    ReactApplicationContext rctContext;
+    File dir;
+    String canonicalDir;
+    long bytesDownloaded = 0;
+    RNFetchBlobHasher hasher;
+    ReadableMap expectedHash;
+
+    public RNFetchBlobZipResp(ReactApplicationContext ctx, String taskId, ResponseBody body, String dir) throws IOException {
+        super();
+        this.rctContext = ctx;
+        this.mTaskId = taskId;
+        this.originalBody = body;
+        this.dir = new File(dir);
+        if(!this.dir.exists() && !this.dir.mkdirs())
+            throw new IOException("Couldn't create dir: " + dir);
+        this.canonicalDir = this.dir.getCanonicalPath() + File.separator;
+    }
+
+    /**
+     * Compute digests of the archive while it's being extracted, extraction fails when the
+     * digests don't match expected values.
+     * @param hasher Hasher, can be null.
+     * @param expected Expected digests, can be null.
+     * @return object itself
+     */
+    public RNFetchBlobZipResp setHasher(RNFetchBlobHasher hasher, ReadableMap expected) {
+        this.hasher = hasher;
+        this.expectedHash = expected;
+        return this;
+    }
+
+    /**
+     * Read the response until the end and write every entry of the archive to destination
+     * directory. Files which have been extracted are removed when extraction fails.
+     * @return Manifest of the archive, contains `name`, `path` and `size` of each file.
+     * @throws IOException
+     */
+    public WritableArray extract() throws IOException {
+        WritableArray manifest = Arguments.createArray();
+        ArrayList<File> created = new ArrayList<>();
+        byte[] buffer = RNFetchBlobBufferPool.acquire();
+        boolean success = false;
+        try {
+            InputStream stream = new ProgressReportingStream(originalBody.byteStream());
+            ZipInputStream zip = new ZipInputStream(stream);
+            ZipEntry entry;
+            int index = 0;
+            while ((entry = zip.getNextEntry()) != null) {
+                File dest = resolve(entry.getName());
+                if(entry.isDirectory()) {
+                    if(!dest.exists() && !dest.mkdirs())
+                        throw new IOException("Couldn't create dir: " + dest);
+                    continue;
+                }
+                File parent = dest.getParentFile();
+                if(!parent.exists() && !parent.mkdirs())
+                    throw new IOException("Couldn't create dir: " + parent);
+                created.add(dest);
+                long size = 0;
+                FileOutputStream os = new FileOutputStream(dest);
+                try {
+                    int read;
+                    while ((read = zip.read(buffer)) != -1) {
+                        os.write(buffer, 0, read);
+                        size += read;
+                    }
+                } finally {
+                    os.close();
+                }
+                WritableMap item = Arguments.createMap();
+                item.putString("name", entry.getName());
+                item.putString("path", dest.getPath());
+                item.putDouble("size", size);
+                manifest.pushMap(item);
+                emitEntryEvent(entry.getName(), dest.getPath(), size, index++);
+            }
+            if(index == 0)
+                throw new IOException("response is not a zip archive or the archive is empty");
+            // read the central directory so the connection can be reused
+            while (stream.read(buffer) != -1) {
+            }
+            String mismatch = hasher != null ? hasher.verify(expectedHash) : null;
+            if(mismatch != null)
+                throw new IOException(mismatch);
+            success = true;
+        } finally {
+            RNFetchBlobBufferPool.release(buffer);
+            close();
+            if(!success) {
+                for(File file : created) {
+                    file.delete();
+                }
+            }
+        }
+        return manifest;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return originalBody.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return originalBody.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+        return originalBody.source();
+    }
+
+    @Override
+    public void close() {
+        originalBody.close();
+    }
+
+    /**
+     * Get destination of an entry, entries whose name points outside of destination directory
+     * are rejected (zip slip).
+     * @param name Entry name
+     * @return Destination file
+     * @throws IOException
+     */
+    private File resolve(String name) throws IOException {
+        File dest = new File(dir, name);
+        String path = dest.getCanonicalPath();
+        if(!path.startsWith(canonicalDir) && !(path + File.separator).equals(canonicalDir))
+            throw new IOException("zip entry is outside of target directory: " + name);
+        return dest;
+    }
+
+    private void emitEntryEvent(String name, String path, long size, int index) {
+        WritableMap args = Arguments.createMap();
+        args.putString("taskId", mTaskId);
+        args.putString("name", name);
+        args.putString("path", path);
+        args.putDouble("size", size);
+        args.putInt("index", index);
+        args.putString("written", String.valueOf(bytesDownloaded));
+        args.putString("total", String.valueOf(contentLength()));
+        rctContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(RNFetchBlobConst.EVENT_EXTRACT_ENTRY, args);
+    }
+
+    private class ProgressReportingStream extends FilterInputStream {
+
+        ProgressReportingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b != -1) {
+                if(hasher != null)
+                    hasher.update(new byte[] { (byte) b }, 0, 1);
+                onRead(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if(read > 0) {
+                if(hasher != null)
+                    hasher.update(b, off, read);
+                onRead(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if(n <= 0)
+                return 0;
+            // skipped bytes are read so they are hashed and counted
+            byte[] scratch = new byte[(int) Math.min(n, 8192)];
+            int read = read(scratch, 0, scratch.length);
+            return read < 0 ? 0 : read;
+        }
+
+        private void onRead(long count) throws IOException {
+            bytesDownloaded += count;
+            RNFetchBlobReq.emitProgressEvent(mTaskId, bytesDownloaded, contentLength());
+            RNFetchBlobMetrics.onBytesIn(count);
+            RNFetchBlobBandwidth.consume(mTaskId, count);
+        }
+    }
+
+}
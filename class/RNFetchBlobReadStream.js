@@ -6,6 +6,7 @@ import {
   NativeModules,
   DeviceEventEmitter,
   NativeAppEventEmitter,
+  Platform,
 } from 'react-native'
 import UUID from '../utils/uuid'
 
@@ -19,8 +20,10 @@ export default class RNFetchBlobReadStream {
   bufferSize : ?number;
   closed : boolean;
   tick : number = 10;
+  credits : number = 4;
+  paused : boolean;
 
-  constructor(path:string, encoding:string, bufferSize?:?number, tick:number) {
+  constructor(path:string, encoding:string, bufferSize?:?number, tick:number, credits?:?number) {
     if(!path)
       throw Error('RNFetchBlob could not open file stream with empty `path`')
     this.encoding = encoding || 'utf8'
@@ -28,16 +31,25 @@ export default class RNFetchBlobReadStream {
     this.path = path
     this.closed = false
     this.tick = tick
+    // zero or a negative number disables flow control
+    this.credits = typeof credits === 'number' ? credits : 4
+    this.paused = false
     this._onData = () => {}
     this._onEnd = () => {}
     this._onError = () => {}
     this.streamId = 'RNFBRS'+ UUID()
 
     // register for file stream event
-    let subscription = emitter.addListener(this.streamId, (e) => {
+    let subscription = this.subscription = emitter.addListener(this.streamId, (e) => {
       let {event, detail} = e
       if(this._onData && event === 'data') {
-        this._onData(detail)
+        let result = this._onData(detail)
+        // the chunk is consumed, allow native stream to emit next one. When the handler
+        // returns a promise, the chunk is consumed when the promise is settled.
+        if(result && typeof result.then === 'function')
+          result.then(() => this._grant(), () => this._grant())
+        else
+          this._grant()
         return
       }
       else if (this._onEnd && event === 'end') {
@@ -59,10 +71,45 @@ export default class RNFetchBlobReadStream {
   }
 
   open() {
-    if(!this.closed)
-      RNFetchBlob.readStream(this.path, this.encoding, this.bufferSize || 10240 , this.tick || -1, this.streamId)
-    else
+    if(this.closed)
       throw new Error('Stream closed')
+    // Android stream is paced by credits instead of `tick`
+    if(Platform.OS === 'android')
+      RNFetchBlob.openReadStream(this.path, this.encoding, this.bufferSize || 10240, this.credits, this.streamId)
+    else
+      RNFetchBlob.readStream(this.path, this.encoding, this.bufferSize || 10240 , this.tick || -1, this.streamId)
+  }
+
+  /**
+   * Stop emitting data until `resume` is called, only supported on Android.
+   */
+  pause() {
+    this.paused = true
+    if(Platform.OS === 'android')
+      RNFetchBlob.pauseReadStream(this.streamId)
+  }
+
+  resume() {
+    this.paused = false
+    if(Platform.OS === 'android')
+      RNFetchBlob.resumeReadStream(this.streamId)
+  }
+
+  /**
+   * Stop the stream and close the file, no more event is emitted. Only supported on Android.
+   */
+  close() {
+    if(this.closed)
+      return
+    this.closed = true
+    this.subscription.remove()
+    if(Platform.OS === 'android')
+      RNFetchBlob.closeReadStream(this.streamId)
+  }
+
+  _grant() {
+    if(!this.closed && this.credits > 0 && Platform.OS === 'android')
+      RNFetchBlob.grantReadStream(this.streamId, 1)
   }
 
   onData(fn:() => void) {
@@ -110,15 +110,19 @@ function writeStream(
  * @param  {string} path   The file path.
  * @param  {string} encoding Data encoding, should be one of `base64`, `utf8`, `ascii`
  * @param  {boolean} bufferSize Size of stream buffer.
+ * @param  {number} tick Interval between chunks in milliseconds, not used on Android.
+ * @param  {number} credits Max number of chunks emitted before they're consumed by `onData`
+ *                          handler, zero disables flow control. Android only.
  * @return {RNFetchBlobStream} RNFetchBlobStream stream instance.
  */
 function readStream(
   path : string,
   encoding : 'utf8' | 'ascii' | 'base64',
   bufferSize? : ?number,
-  tick : ?number = 10
+  tick : ?number = 10,
+  credits : ?number = 4
 ):Promise<RNFetchBlobReadStream> {
-  return Promise.resolve(new RNFetchBlobReadStream(path, encoding, bufferSize, tick))
+  return Promise.resolve(new RNFetchBlobReadStream(path, encoding, bufferSize, tick, credits))
 }
 
 /**
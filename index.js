@@ -69,6 +69,22 @@ emitter.addListener("RNFetchBlobMessage", (e) => {
   }
 })
 
+// tasks which are waiting for progress, Android reports progress of all tasks
+// with one batched event per frame instead of one event per task
+const progressTasks = {}
+
+emitter.addListener('RNFetchBlobProgressBatch', (e) => {
+  e.items.forEach((item) => {
+    let promise = progressTasks[item.taskId]
+    if(!promise)
+      return
+    if(item.upload)
+      promise.onUploadProgress && promise.onUploadProgress(item.written, item.total)
+    else
+      promise.onProgress && promise.onProgress(item.written, item.total, '')
+  })
+})
+
 // Show warning if native module not detected
 if(!RNFetchBlob || !RNFetchBlob.fetchBlobForm || !RNFetchBlob.fetchBlob) {
   console.warn(
@@ -212,7 +228,7 @@ function fetch(...args:any):Promise {
   // create task ID for receiving progress event
   let taskId = getUUID()
   let options = this || {}
-  let subscription, subscriptionUpload, stateEvent, partEvent
+  let subscription, subscriptionUpload, stateEvent, expireEvent, partEvent, entryEvent, recordsEvent, timingsEvent
   let respInfo = {}
   let [method, url, headers, body] = [...args]
 
@@ -251,7 +267,7 @@ function fetch(...args:any):Promise {
       promise.onStateChange && promise.onStateChange(e)
     })
 
-    subscription = emitter.addListener('RNFetchBlobExpire', (e) => {
+    expireEvent = emitter.addListener('RNFetchBlobExpire', (e) => {
       if(e.taskId === taskId && promise.onExpire) {
         promise.onExpire(e)
       }
@@ -263,6 +279,26 @@ function fetch(...args:any):Promise {
       }
     })
 
+    // an entry of the archive is extracted, only emitted when `extractTo` is set
+    entryEvent = emitter.addListener('RNFetchBlobExtractEntry', (e) => {
+      if(e.taskId === taskId && promise.onEntry) {
+        promise.onEntry(e)
+      }
+    })
+
+    // complete timings of the request, emitted when the response body has been received
+    timingsEvent = emitter.addListener('RNFetchBlobTimings', (e) => {
+      if(e.taskId === taskId)
+        respInfo = Object.assign({}, respInfo, { timings : e.timings })
+    })
+
+    // a batch of records of the response body, only emitted when `framing` is set
+    recordsEvent = emitter.addListener('RNFetchBlobRecords', (e) => {
+      if(e.taskId === taskId && promise.onRecords) {
+        promise.onRecords(e.records)
+      }
+    })
+
     // When the request body comes from Blob polyfill, we should use special its ref
     // as the request body
     if( body instanceof Blob && body.isRNFetchBlobPolyfill) {
@@ -281,18 +317,26 @@ function fetch(...args:any):Promise {
      *                  in JS context, and this parameter indicates which one
      *                  dose the response data presents.
      * @param data {string} Response data or its reference.
+     * @param manifest {Array<any>} Extracted files when `extractTo` is set.
      */
-    req(options, taskId, method, url, headers || {}, body, (err, rawType, data) => {
+    req(options, taskId, method, url, headers || {}, body, (err, rawType, data, manifest) => {
 
       // task done, remove event listeners
       subscription.remove()
       subscriptionUpload.remove()
       stateEvent.remove()
+      expireEvent.remove()
       partEvent.remove()
+      entryEvent.remove()
+      recordsEvent.remove()
+      timingsEvent.remove()
+      delete progressTasks[taskId]
       delete promise['progress']
       delete promise['uploadProgress']
       delete promise['stateChange']
       delete promise['part']
+      delete promise['entry']
+      delete promise['records']
       delete promise['cancel']
       // delete promise['expire']
       promise.cancel = () => {}
@@ -307,6 +351,8 @@ function fetch(...args:any):Promise {
             session(options.session).add(data)
         }
         respInfo.rnfbEncode = rawType
+        if(manifest)
+          respInfo.manifest = manifest
         resolve(new FetchBlobResponse(taskId, respInfo, data))
       }
 
@@ -333,6 +379,7 @@ function fetch(...args:any):Promise {
       fn = args[0]
     }
     promise.onProgress = fn
+    progressTasks[taskId] = promise
     RNFetchBlob.enableProgressReport(taskId, interval, count)
     return promise
   }
@@ -349,6 +396,7 @@ function fetch(...args:any):Promise {
       fn = args[0]
     }
     promise.onUploadProgress = fn
+    progressTasks[taskId] = promise
     RNFetchBlob.enableUploadProgressReport(taskId, interval, count)
     return promise
   }
@@ -356,6 +404,14 @@ function fetch(...args:any):Promise {
     promise.onPartData = fn
     return promise
   }
+  promise.entry = (fn) => {
+    promise.onEntry = fn
+    return promise
+  }
+  promise.records = (fn) => {
+    promise.onRecords = fn
+    return promise
+  }
   promise.stateChange = (fn) => {
     promise.onStateChange = fn
     return promise
@@ -369,6 +425,12 @@ function fetch(...args:any):Promise {
     subscription.remove()
     subscriptionUpload.remove()
     stateEvent.remove()
+    expireEvent.remove()
+    partEvent.remove()
+    entryEvent.remove()
+    recordsEvent.remove()
+    timingsEvent.remove()
+    delete progressTasks[taskId]
     RNFetchBlob.cancelRequest(taskId, fn)
   }
   promise.taskId = taskId